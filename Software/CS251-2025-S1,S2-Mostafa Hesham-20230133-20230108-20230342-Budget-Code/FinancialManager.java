@@ -1,29 +1,115 @@
+import batch.BatchRunner;
+import entities.User;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 import managers.*;
+import server.ApiServer;
 import utils.*;
 
 /**
  * Main class for managing financial operations such as budgets, income, expenses, reminders, and user profiles.
+ * Managers are loaded lazily: users load in the background as soon as the app starts, and
+ * a user's own data partition starts loading in the background once they log in. A menu
+ * only waits if its data is not ready yet when it is opened.
  */
 public class FinancialManager {
-    private final BudgetManager budgetManager = new BudgetManager();
-    private final IncomeManager incomeManager = new IncomeManager();
-    private final ExpenseManager expenseManager = new ExpenseManager();
-    private final ReminderManager reminderManager = new ReminderManager();
-    private final UserManager userManager = new UserManager();
+    // Files written before data was partitioned per user
+    private static final String[] LEGACY_FILES = {
+            "budgets.ser", "incomes.ser", "incomes.log", "expenses.ser", "expenses.log", "reminders.ser"};
+
+    private final LazyLoader<UserManager> userManager = new LazyLoader<>("users", UserManager::new);
+    // The logged-in user's partition; null while nobody is logged in
+    private volatile LazyLoader<BudgetManager> budgetManager;
+    private volatile LazyLoader<IncomeManager> incomeManager;
+    private volatile LazyLoader<ExpenseManager> expenseManager;
+    private volatile LazyLoader<ReminderManager> reminderManager;
+    private volatile LazyLoader<ImportManager> importManager;
+    private volatile LazyLoader<ReportManager> reportManager;
+    private volatile String partitionDirectory;
     private final InputHelper inputHelper = new InputHelper();
 
     /**
      * Entry point of the application.
+     * Pass {@code --startup-report} to print startup timings on exit; they are
+     * always appended to data/startup-times.csv.
+     * Pass {@code --serve [port]} to run the HTTP/JSON server instead of the console menus.
+     * Pass {@code --batch [file]} to run a command script from a file, or from standard
+     * input if no file is given, without prompts; see {@link BatchRunner}.
+     * Start the JVM with {@code -XX:StartFlightRecording=filename=budget.jfr} to record
+     * every save and load of a data file as a Flight Recorder event.
      * @param args Command-line arguments.
      */
     public static void main(String[] args) {
-        new FinancialManager().start();
+        List<String> options = Arrays.asList(args);
+        if (options.contains("--serve")) {
+            serve(options);
+            return;
+        }
+        if (options.contains("--batch")) {
+            System.exit(runBatch(options) ? 0 : 1);
+        }
+        boolean printReport = options.contains("--startup-report");
+        FinancialManager app = new FinancialManager();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            app.checkpointAll();
+            StartupReport.save();
+            if (printReport) StartupReport.print();
+        }));
+        app.start();
+    }
+
+    /**
+     * Runs the HTTP/JSON server until the process is stopped.
+     * @param options Command-line arguments; the one after {@code --serve}, if numeric, is the port.
+     */
+    private static void serve(List<String> options) {
+        int index = options.indexOf("--serve") + 1;
+        int port = ApiServer.DEFAULT_PORT;
+        if (index < options.size() && options.get(index).matches("\\d+")) {
+            port = Integer.parseInt(options.get(index));
+        }
+        try {
+            ApiServer server = new ApiServer(port, LEGACY_FILES);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            server.start();
+            System.out.println("Serving on http://localhost:" + server.getPort() + "/api");
+        } catch (IOException e) {
+            System.out.println("Could not start server: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a command script and saves everything it changed.
+     * @param options Command-line arguments; the one after {@code --batch}, if any, is the script file.
+     * @return true if every line of the script succeeded, false otherwise
+     */
+    private static boolean runBatch(List<String> options) {
+        int index = options.indexOf("--batch") + 1;
+        BatchRunner runner = new BatchRunner(LEGACY_FILES);
+        if (index >= options.size() || options.get(index).equals("-")) {
+            return runner.run(InputHelper.getStandardInput()) == 0;
+        }
+        try (BufferedReader script = Files.newBufferedReader(Paths.get(options.get(index)), StandardCharsets.UTF_8)) {
+            return runner.run(script) == 0;
+        } catch (IOException e) {
+            System.err.println("Could not read script: " + e.getMessage());
+            return false;
+        }
     }
 
     /**
      * Starts the application and displays the main menu.
      */
     public void start() {
+        userManager.preload();
+        StartupReport.mark("login menu ready");
+
         while (true) {
             System.out.println("\n=== FINANCIAL MANAGER ===");
             System.out.println("1. Login\n2. Register\n3. Exit");
@@ -31,12 +117,18 @@ public class FinancialManager {
 
             switch (choice) {
                 case "1":
-                    if (userManager.login()) showMainMenu();
+                    if (userManager.get().login()) {
+                        openPartition(userManager.get().getCurrentUser());
+                        showMainMenu();
+                        closePartition();
+                    }
                     break;
                 case "2":
-                    userManager.register();
+                    userManager.get().register();
+                    checkpointAll();
                     break;
                 case "3":
+                    checkpointAll();
                     System.exit(0);
                 default:
                     System.out.println("Invalid option");
@@ -50,16 +142,24 @@ public class FinancialManager {
     private void showMainMenu() {
         while (true) {
             System.out.println("\n=== MAIN MENU ===");
-            System.out.println("1. Budgets\n2. Income\n3. Expenses\n4. Reminders\n5. Profile\n6. Exit");
-
-            switch (inputHelper.getNonEmpty("Choose option: ")) {
-                case "1": handleBudgets(); break;
-                case "2": handleIncome(); break;
-                case "3": handleExpenses(); break;
-                case "4": handleReminders(); break;
-                case "5": if (handleProfile()) return; break;
-                case "6": return;
-                default: System.out.println("Invalid option");
+            System.out.println("1. Budgets\n2. Income\n3. Expenses\n4. Reminders\n5. Import Statement\n6. Reports\n7. Profile\n8. Stats\n9. Exit");
+
+            try {
+                switch (inputHelper.getNonEmpty("Choose option: ")) {
+                    case "1": handleBudgets(); break;
+                    case "2": handleIncome(); break;
+                    case "3": handleExpenses(); break;
+                    case "4": handleReminders(); break;
+                    case "5": handleImport(); break;
+                    case "6": handleReports(); break;
+                    case "7": if (handleProfile()) return; break;
+                    case "8": handleStats(); break;
+                    case "9": return;
+                    default: System.out.println("Invalid option");
+                }
+            } catch (IllegalStateException e) {
+                // A manager that failed to load; choosing it again retries the load
+                System.out.println(e.getMessage() + "!");
             }
         }
     }
@@ -68,28 +168,56 @@ public class FinancialManager {
      * Handles budget-related operations.
      */
     private void handleBudgets() {
-        budgetManager.showMenu();
+        budgetManager.get().showMenu();
     }
 
     /**
      * Handles income-related operations.
      */
     private void handleIncome() {
-        incomeManager.showMenu();
+        incomeManager.get().showMenu();
     }
 
     /**
      * Handles expense-related operations.
      */
     private void handleExpenses() {
-        expenseManager.showMenu();
+        expenseManager.get().showMenu();
     }
 
     /**
      * Handles reminder-related operations.
      */
     private void handleReminders() {
-        reminderManager.showMenu();
+        reminderManager.get().showMenu();
+    }
+
+    /**
+     * Handles bank statement imports.
+     */
+    private void handleImport() {
+        importManager.get().showMenu();
+    }
+
+    /**
+     * Handles history reports.
+     */
+    private void handleReports() {
+        reportManager.get().showMenu();
+    }
+
+    /**
+     * Shows the runtime metrics and optionally exports them as CSV.
+     */
+    private void handleStats() {
+        Metrics.print();
+        String path = inputHelper.getOptional("Export to CSV file (Enter to skip): ");
+        if (path.isEmpty()) return;
+        if (Metrics.export(new File(path))) {
+            System.out.println("Metrics exported to " + path);
+        } else {
+            System.out.println("Failed to export metrics!");
+        }
     }
 
     /**
@@ -97,7 +225,70 @@ public class FinancialManager {
      * @return true if user logged out, false otherwise
      */
     private boolean handleProfile() {
-        userManager.showProfileMenu();
-        return userManager.getCurrentUser() == null;
+        userManager.get().showProfileMenu();
+        return userManager.get().getCurrentUser() == null;
+    }
+
+    /**
+     * Saves every manager whose data changed since its last checkpoint.
+     * Plain expenses and incomes are already written to their append-only logs
+     * as they are added; their checkpoints only cover recurring entries.
+     */
+    private void checkpointAll() {
+        LazyLoader<BudgetManager> budgets = budgetManager;
+        LazyLoader<ExpenseManager> expenses = expenseManager;
+        LazyLoader<IncomeManager> incomes = incomeManager;
+        LazyLoader<ReminderManager> reminders = reminderManager;
+        if (budgets != null) budgets.ifLoaded(BudgetManager::checkpoint);
+        if (expenses != null) expenses.ifLoaded(ExpenseManager::checkpoint);
+        if (incomes != null) incomes.ifLoaded(IncomeManager::checkpoint);
+        if (reminders != null) reminders.ifLoaded(ReminderManager::checkpoint);
+        userManager.ifLoaded(UserManager::checkpoint);
+    }
+
+    /**
+     * Starts loading the data partition of a user who just logged in.
+     * The first user to log in after upgrading takes over the data that was
+     * previously shared by the whole installation.
+     * @param user the logged-in user
+     */
+    private void openPartition(User user) {
+        String directory = SerializationHelper.getUserDirectory(user.getUsername());
+        SerializationHelper.adoptLegacyFiles(directory, LEGACY_FILES);
+        partitionDirectory = directory;
+
+        LazyLoader<ExpenseManager> expenses = new LazyLoader<>("expenses", () -> new ExpenseManager(directory));
+        LazyLoader<IncomeManager> incomes = new LazyLoader<>("incomes", () -> new IncomeManager(directory));
+        expenseManager = expenses;
+        incomeManager = incomes;
+        budgetManager = new LazyLoader<>("budgets", () -> new BudgetManager(directory, expenses.get()));
+        reminderManager = new LazyLoader<>("reminders", () -> new ReminderManager(directory));
+        importManager = new LazyLoader<>("import", () -> new ImportManager(expenses.get(), incomes.get()));
+        reportManager = new LazyLoader<>("reports", () -> new ReportManager(expenses.get(), incomes.get()));
+
+        expenseManager.preload();
+        budgetManager.preload();
+        incomeManager.preload();
+        reminderManager.preload();
+    }
+
+    /**
+     * Saves and releases the partition of the user who is leaving the main menu.
+     * Reminders that are still loading are closed as soon as they finish, so their
+     * scheduler never fires for a user who has logged out.
+     */
+    private void closePartition() {
+        LazyLoader<ReminderManager> reminders = reminderManager;
+        if (reminders != null) reminders.whenLoaded(ReminderManager::close);
+        checkpointAll();
+        String directory = partitionDirectory;
+        if (directory != null) Metrics.removeGauges(directory);
+        partitionDirectory = null;
+        budgetManager = null;
+        incomeManager = null;
+        expenseManager = null;
+        reminderManager = null;
+        importManager = null;
+        reportManager = null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,365 @@
+package batch;
+
+import entities.Budget;
+import entities.Expense;
+import entities.Income;
+import entities.Reminder;
+import entities.User;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import managers.AnomalyDetector;
+import managers.BudgetManager;
+import managers.ExpenseManager;
+import managers.IncomeManager;
+import managers.ReminderManager;
+import managers.UserManager;
+import utils.ExchangeRates;
+import utils.Metrics;
+import utils.Money;
+import utils.SerializationHelper;
+import utils.Validators;
+
+/**
+ * Runs a script of commands without prompts, one command per line.
+ * <p>
+ * The script is read through a single buffered reader and output is buffered
+ * until the end of the run, so thousands of commands run per second. A line
+ * that fails is reported with its line number and skipped; the script goes on
+ * with the next line instead of asking again. Runs of consecutive expense and
+ * income lines are handed to their managers as one batch, one log write each;
+ * if a batch cannot be added, it is reported with the range of lines it was
+ * read from and each of its records counts as a failed line.
+ * Expenses that look unusual for their category are listed as they are added.
+ * </p>
+ * <pre>
+ * register &lt;username&gt; &lt;password&gt; &lt;email&gt;
+ * login    &lt;username&gt; &lt;password&gt;
+ * logout
+ * expense  &lt;amount&gt; &lt;category&gt; &lt;method&gt; &lt;date&gt; [currency]
+ * income   &lt;amount&gt; &lt;source&gt; &lt;date&gt; [currency]
+ * budget   &lt;category&gt; &lt;limit&gt; &lt;start date&gt; &lt;end date&gt; [currency]
+ * reminder &lt;title&gt; &lt;date&gt; &lt;time&gt;
+ * </pre>
+ * <p>
+ * Arguments are separated by spaces; an argument containing spaces is written
+ * in double quotes. Dates are YYYY-MM-DD and times HH:mm. Blank lines and lines
+ * starting with {@code #} are ignored. Amounts are in
+ * {@link ExchangeRates#BASE_CURRENCY} unless a currency with an exchange rate is given.
+ * </p>
+ */
+public class BatchRunner {
+    private static final int BATCH_SIZE = 10_000;
+
+    private final UserManager users = new UserManager();
+    private final String[] legacyFiles;
+    private final PrintWriter out = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16));
+    private final PrintWriter err = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(System.err, StandardCharsets.UTF_8), 1 << 16));
+
+    // The logged-in user's partition; null while nobody is logged in
+    private String directory;
+    private ExpenseManager expenseManager;
+    private IncomeManager incomeManager;
+    private BudgetManager budgetManager;
+    private ReminderManager reminderManager;
+    private final List<Expense> pendingExpenses = new ArrayList<>();
+    private final List<Income> pendingIncomes = new ArrayList<>();
+    // Script lines of the first and last pending record, and of the line being run
+    private int pendingFirstLine;
+    private int pendingLastLine;
+    private int lineNumber;
+    // Records of batches that could not be added
+    private int failedRecords;
+
+    /**
+     * Creates a runner over the saved users.
+     * @param legacyFiles Files from before data was partitioned per user, adopted by the first user to log in
+     */
+    public BatchRunner(String[] legacyFiles) {
+        this.legacyFiles = legacyFiles;
+    }
+
+    /**
+     * Runs every command of a script, then logs out and saves everything.
+     * @param script The script to run
+     * @return the number of lines that failed, counting each record of a batch that could not be added
+     */
+    public int run(BufferedReader script) {
+        long start = System.nanoTime();
+        lineNumber = 0;
+        failedRecords = 0;
+        int commands = 0;
+        int failed = 0;
+        try {
+            String line;
+            while ((line = script.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+                commands++;
+                try {
+                    execute(tokenize(trimmed));
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    failed++;
+                    err.println("line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            failed++;
+            err.println("line " + (lineNumber + 1) + ": could not read script: " + e.getMessage());
+        }
+        try {
+            logout();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            failed++;
+            err.println("end of script: " + e.getMessage());
+        }
+        users.checkpoint();
+        failed += failedRecords;
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        out.printf("%d commands, %d failed in %.2fs (%.0f commands/s)%n",
+                commands, failed, seconds, commands / Math.max(seconds, 1e-9));
+        err.flush();
+        out.flush();
+        return failed;
+    }
+
+    /**
+     * Runs one command.
+     * @throws IllegalArgumentException if the command or its arguments are invalid
+     * @throws IllegalStateException if the command needs a logged-in user and there is none
+     */
+    private void execute(List<String> args) {
+        String command = args.get(0).toLowerCase();
+        // Keep the managers in step with the script before anything other than a record is added
+        if (!command.equals("expense") && !command.equals("income")) flushPending();
+
+        switch (command) {
+            case "register":
+                expectArgs(args, "register <username> <password> <email>");
+                if (!Validators.isValidEmail(args.get(3))) throw new IllegalArgumentException("Invalid email format");
+                if (users.register(args.get(1), args.get(2), args.get(3)) == null) {
+                    throw new IllegalArgumentException("Username already taken");
+                }
+                break;
+            case "login":
+                expectArgs(args, "login <username> <password>");
+                User user = users.authenticate(args.get(1), args.get(2));
+                if (user == null) throw new IllegalArgumentException("Invalid credentials");
+                logout();
+                openPartition(user);
+                break;
+            case "logout":
+                expectArgs(args, "logout");
+                requireLogin();
+                logout();
+                break;
+            case "expense":
+                expectArgs(args, "expense <amount> <category> <method> <date> [currency]");
+                requireLogin();
+                pendingExpenses.add(Expense.ofCents(amount(args.get(1)), args.get(2), args.get(3), date(args.get(4)))
+                        .inCurrency(currency(args, 5)));
+                addedPending();
+                if (pendingExpenses.size() >= BATCH_SIZE) flushPending();
+                break;
+            case "income":
+                expectArgs(args, "income <amount> <source> <date> [currency]");
+                requireLogin();
+                pendingIncomes.add(Income.ofCents(amount(args.get(1)), args.get(2), date(args.get(3))).inCurrency(currency(args, 4)));
+                addedPending();
+                if (pendingIncomes.size() >= BATCH_SIZE) flushPending();
+                break;
+            case "budget":
+                expectArgs(args, "budget <category> <limit> <start date> <end date> [currency]");
+                requireLogin();
+                LocalDate startDate = date(args.get(3));
+                LocalDate endDate = date(args.get(4));
+                if (!Validators.validateBudget(startDate, endDate)) {
+                    throw new IllegalArgumentException("End date must be after start date");
+                }
+                budgetManager.addBudget(Budget.ofCents(args.get(1), amount(args.get(2)), startDate, endDate)
+                        .inCurrency(currency(args, 5)));
+                break;
+            case "reminder":
+                expectArgs(args, "reminder <title> <date> <time>");
+                requireLogin();
+                String title = args.get(1);
+                if (!Validators.isValidString(title, 3, 50)) throw new IllegalArgumentException("Title must be 3-50 characters");
+                LocalDate date = date(args.get(2));
+                LocalTime time = time(args.get(3));
+                if (!Validators.validateReminder(LocalDateTime.of(date, time))) {
+                    throw new IllegalArgumentException("Reminder must be in the future");
+                }
+                reminderManager.addReminder(new Reminder(title, date, time));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + args.get(0));
+        }
+    }
+
+    /**
+     * Loads the partition of a user who just logged in.
+     */
+    private void openPartition(User user) {
+        directory = SerializationHelper.getUserDirectory(user.getUsername());
+        SerializationHelper.adoptLegacyFiles(directory, legacyFiles);
+        expenseManager = new ExpenseManager(directory);
+        incomeManager = new IncomeManager(directory);
+        budgetManager = new BudgetManager(directory, expenseManager);
+        reminderManager = new ReminderManager(directory);
+    }
+
+    /**
+     * Adds the pending records, saves and releases the partition, if a user is logged in.
+     */
+    private void logout() {
+        if (directory == null) return;
+        flushPending();
+        reminderManager.close();
+        expenseManager.checkpoint();
+        incomeManager.checkpoint();
+        budgetManager.checkpoint();
+        Metrics.removeGauges(directory);
+        directory = null;
+        expenseManager = null;
+        incomeManager = null;
+        budgetManager = null;
+        reminderManager = null;
+    }
+
+    /**
+     * Notes the line of a record that was just added to a pending batch.
+     */
+    private void addedPending() {
+        if (pendingExpenses.size() + pendingIncomes.size() == 1) pendingFirstLine = lineNumber;
+        pendingLastLine = lineNumber;
+    }
+
+    /**
+     * Hands the expenses and incomes read since the last flush to their managers.
+     * A batch that cannot be added is reported against the lines it was read from
+     * rather than the line that triggered the flush, and all of its records count as failed.
+     */
+    private void flushPending() {
+        if (!pendingExpenses.isEmpty()) {
+            try {
+                for (AnomalyDetector.Anomaly anomaly : expenseManager.addExpenses(new ArrayList<>(pendingExpenses))) {
+                    out.println("Unusual expense " + anomaly);
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                failedBatch(pendingExpenses.size(), "expense", e);
+            }
+            pendingExpenses.clear();
+        }
+        if (!pendingIncomes.isEmpty()) {
+            try {
+                incomeManager.addIncomes(new ArrayList<>(pendingIncomes));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                failedBatch(pendingIncomes.size(), "income", e);
+            }
+            pendingIncomes.clear();
+        }
+    }
+
+    /**
+     * Reports a batch of records that could not be added.
+     */
+    private void failedBatch(int count, String kind, RuntimeException e) {
+        failedRecords += count;
+        err.println("lines " + pendingFirstLine + "-" + pendingLastLine + ": " + e.getMessage()
+                + " (" + count + " " + kind + (count == 1 ? "" : "s") + " not added)");
+    }
+
+    private void requireLogin() {
+        if (directory == null) throw new IllegalStateException("Not logged in");
+    }
+
+    /**
+     * Checks the number of arguments against a usage line, where a trailing
+     * {@code [argument]} is optional.
+     */
+    private static void expectArgs(List<String> args, String usage) {
+        int required = usage.split(" <").length;
+        int optional = usage.endsWith("]") ? 1 : 0;
+        if (args.size() < required || args.size() > required + optional) {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+    }
+
+    private static String currency(List<String> args, int index) {
+        if (args.size() <= index) return ExchangeRates.BASE_CURRENCY;
+        String currency = ExchangeRates.normalize(args.get(index));
+        if (!ExchangeRates.shared().isKnown(currency)) throw new IllegalArgumentException("No exchange rate for " + currency);
+        return currency;
+    }
+
+    private static long amount(String value) {
+        try {
+            long cents = Money.parse(value);
+            if (Validators.validateTransaction(cents)) return cents;
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Amount must be positive with at most two decimals: " + value);
+    }
+
+    private static LocalDate date(String value) {
+        LocalDate date;
+        try {
+            date = LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date, use YYYY-MM-DD: " + value);
+        }
+        if (!Validators.validateDate(date)) {
+            throw new IllegalArgumentException("Date must be between " + Validators.MIN_DATE + " and " + Validators.MAX_DATE + ": " + value);
+        }
+        return date;
+    }
+
+    private static LocalTime time(String value) {
+        try {
+            return LocalTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time, use HH:mm: " + value);
+        }
+    }
+
+    /**
+     * Splits a line into arguments at spaces, keeping text in double quotes together.
+     */
+    private static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        boolean inToken = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inToken = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inToken) tokens.add(token.toString());
+                token.setLength(0);
+                inToken = false;
+            } else {
+                token.append(c);
+                inToken = true;
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Unterminated quote");
+        if (inToken) tokens.add(token.toString());
+        return tokens;
+    }
+}
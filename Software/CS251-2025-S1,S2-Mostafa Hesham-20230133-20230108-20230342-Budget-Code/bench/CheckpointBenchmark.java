@@ -0,0 +1,67 @@
+package bench;
+
+import entities.Budget;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import utils.Checkpoint;
+import utils.SerializationHelper;
+
+/**
+ * Measures checkpoint cost against data size.
+ * <p>
+ * For each list size it times a dirty checkpoint (temp file, fsync, atomic rename),
+ * a clean checkpoint (nothing changed, so nothing is written) and a reload.
+ * Run from a scratch directory, since it writes into ./data.
+ * </p>
+ */
+public class CheckpointBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 100_000, 250_000};
+    private static final int ROUNDS = 5;
+    private static final String FILE = "checkpoint-bench.ser";
+
+    /**
+     * Runs the benchmark and prints one line per data size.
+     * @param args Command-line arguments (unused).
+     */
+    public static void main(String[] args) {
+        System.out.printf("%10s %12s %14s %14s %12s%n", "records", "file KB", "dirty ms", "clean ms", "load ms");
+        for (int size : SIZES) {
+            List<Budget> budgets = generate(size);
+            Checkpoint checkpoint = new Checkpoint(FILE, () -> budgets);
+
+            double dirty = 0;
+            double clean = 0;
+            double load = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                checkpoint.markDirty();
+                long start = System.nanoTime();
+                checkpoint.flush();
+                dirty += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                checkpoint.flush();
+                clean += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                SerializationHelper.loadObject(FILE);
+                load += System.nanoTime() - start;
+            }
+
+            long kb = SerializationHelper.getDataFile(FILE).length() / 1024;
+            System.out.printf("%10d %12d %14.2f %14.4f %12.2f%n", size, kb,
+                    dirty / ROUNDS / 1e6, clean / ROUNDS / 1e6, load / ROUNDS / 1e6);
+        }
+        SerializationHelper.getDataFile(FILE).delete();
+    }
+
+    private static List<Budget> generate(int size) {
+        List<Budget> budgets = new ArrayList<>(size);
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        for (int i = 0; i < size; i++) {
+            budgets.add(new Budget("Category " + (i % 40), 100 + i % 900,
+                    start.plusDays(i % 365), start.plusDays(i % 365 + 30)));
+        }
+        return budgets;
+    }
+}
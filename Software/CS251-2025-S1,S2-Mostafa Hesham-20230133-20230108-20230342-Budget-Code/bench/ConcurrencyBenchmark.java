@@ -0,0 +1,188 @@
+package bench;
+
+import entities.Expense;
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import managers.ExpenseManager;
+import managers.UserManager;
+import utils.ConcurrentStore;
+import utils.Money;
+import utils.SerializationHelper;
+
+/**
+ * Stress test and throughput benchmark for the thread-safe stores.
+ * <p>
+ * First it times appends to a {@link ConcurrentStore} against a synchronized
+ * list at growing thread counts, checking that every record arrives exactly once.
+ * Then it adds expenses to one {@link ExpenseManager} from many threads while
+ * readers take snapshots, reloads the partition and checks nothing was lost, and
+ * finally races registrations of the same usernames on a {@link UserManager}.
+ * Any lost update is printed and makes the run exit with status 1. The same
+ * checks, at a smaller scale, run as tests with every build (see {@code test/}).
+ * Run from a scratch directory, since it writes into ./data.
+ * </p>
+ */
+public class ConcurrencyBenchmark {
+    private static final int APPENDS = 2_000_000;
+    private static final int EXPENSE_THREADS = 8;
+    private static final int EXPENSES_PER_THREAD = 2_000;
+    private static final int USER_THREADS = 8;
+    private static final int USERNAMES = 2_000;
+    private static final String DIRECTORY = "bench-concurrency" + File.separator;
+
+    private static boolean failed;
+
+    /**
+     * Runs the benchmark and the stress checks.
+     * @param args Command-line arguments (unused).
+     */
+    public static void main(String[] args) throws InterruptedException {
+        benchmarkAppends();
+        stressExpenses();
+        stressRegistrations();
+        System.out.println(failed ? "FAILED: updates were lost" : "OK: no lost updates");
+        if (failed) System.exit(1);
+    }
+
+    /**
+     * Times appends from a growing number of threads and checks the store afterwards.
+     */
+    private static void benchmarkAppends() throws InterruptedException {
+        System.out.printf("%8s %18s %18s%n", "threads", "store Mops/s", "synced Mops/s");
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= Math.max(2, cores); threads *= 2) {
+            int perThread = APPENDS / threads;
+            ConcurrentStore<Integer> store = new ConcurrentStore<>();
+            double storeSeconds = run(threads, thread -> {
+                for (int i = 0; i < perThread; i++) store.add(thread * perThread + i);
+            });
+            check("store", store.snapshot(), threads * perThread);
+
+            List<Integer> synced = Collections.synchronizedList(new ArrayList<>());
+            double syncedSeconds = run(threads, thread -> {
+                for (int i = 0; i < perThread; i++) synced.add(thread * perThread + i);
+            });
+            check("synchronized list", synced, threads * perThread);
+
+            System.out.printf("%8d %18.2f %18.2f%n", threads,
+                    threads * perThread / storeSeconds / 1e6, threads * perThread / syncedSeconds / 1e6);
+        }
+    }
+
+    /**
+     * Adds expenses from many threads while readers take snapshots, then reloads them from disk.
+     */
+    private static void stressExpenses() throws InterruptedException {
+        deletePartition();
+        ExpenseManager manager = new ExpenseManager(DIRECTORY);
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger shrinking = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            int last = 0;
+            while (writing.get()) {
+                int size = manager.getExpensesThrough(start).size();
+                if (size < last) shrinking.incrementAndGet();
+                last = size;
+            }
+        });
+        reader.start();
+        double seconds = run(EXPENSE_THREADS, thread -> {
+            for (int i = 0; i < EXPENSES_PER_THREAD; i++) {
+                manager.addExpense(new Expense(1, "Stress", "Thread " + thread, start.plusDays(i % 28)));
+            }
+        });
+        writing.set(false);
+        reader.join();
+
+        int expected = EXPENSE_THREADS * EXPENSES_PER_THREAD;
+        int inMemory = manager.getExpensesThrough(start).size();
+        List<Expense> reloaded = new ExpenseManager(DIRECTORY).getExpensesThrough(start);
+        long totalCents = reloaded.stream().mapToLong(Expense::getAmountCents).sum();
+        System.out.printf("%d threads added %d expenses in %.2fs (%.0f inserts/s)%n",
+                EXPENSE_THREADS, expected, seconds, expected / seconds);
+        System.out.printf("  in memory %d, reloaded %d, reloaded total %s, shrinking snapshots %d%n",
+                inMemory, reloaded.size(), Money.format(totalCents), shrinking.get());
+        if (inMemory != expected || reloaded.size() != expected || totalCents != expected * 100L || shrinking.get() > 0) {
+            failed = true;
+        }
+        deletePartition();
+    }
+
+    /**
+     * Registers the same usernames from several threads; each must be taken exactly once.
+     */
+    private static void stressRegistrations() throws InterruptedException {
+        UserManager users = new UserManager();
+        AtomicInteger registered = new AtomicInteger();
+        String prefix = "stress-" + System.nanoTime() + "-";
+        run(USER_THREADS, thread -> {
+            for (int i = 0; i < USERNAMES; i++) {
+                if (users.register(prefix + i, "secret", "stress@example.com") != null) registered.incrementAndGet();
+            }
+        });
+        System.out.printf("%d threads raced to register %d usernames: %d registered%n",
+                USER_THREADS, USERNAMES, registered.get());
+        if (registered.get() != USERNAMES) failed = true;
+    }
+
+    /**
+     * Runs a task on several threads at once and returns the elapsed seconds.
+     */
+    private static double run(int threads, IntConsumer task) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    ready.await();
+                    task.accept(thread);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long start = System.nanoTime();
+        ready.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    /**
+     * Checks that a list holds each of the values 0 to count - 1 exactly once.
+     */
+    private static void check(String name, List<Integer> values, int count) {
+        BitSet seen = new BitSet(count);
+        int duplicates = 0;
+        for (Integer value : values) {
+            if (seen.get(value)) duplicates++;
+            seen.set(value);
+        }
+        if (values.size() != count || seen.cardinality() != count || duplicates > 0) {
+            System.out.printf("  %s: expected %d records, found %d (%d duplicates)%n",
+                    name, count, values.size(), duplicates);
+            failed = true;
+        }
+    }
+
+    private static void deletePartition() {
+        File[] files = SerializationHelper.getDataFile(DIRECTORY + "x").getParentFile().listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            file.delete();
+        }
+    }
+}
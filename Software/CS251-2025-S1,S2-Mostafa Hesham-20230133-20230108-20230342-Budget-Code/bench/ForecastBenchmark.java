@@ -0,0 +1,96 @@
+package bench;
+
+import entities.Budget;
+import entities.Expense;
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import managers.BudgetForecaster;
+import managers.BudgetManager;
+import managers.ExpenseManager;
+import utils.Money;
+import utils.SerializationHelper;
+
+/**
+ * Times {@link BudgetForecaster} forecasts for categories with growing histories.
+ * <p>
+ * Each category gets a year of expenses, a few to a few hundred a day, and a
+ * budget that runs from a month ago to two months from now with a limit near its
+ * expected spend. Each line reports the time of the first forecast, of a cached
+ * one (averaged), and of one after an expense in the category dropped the cache, together
+ * with the forecast itself.
+ * Run from a scratch directory, since it writes into ./data.
+ * </p>
+ */
+public class ForecastBenchmark {
+    private static final int[] EXPENSES_PER_DAY = {1, 10, 100, 300};
+    private static final int HISTORY_DAYS = 365;
+    private static final int CACHED_CALLS = 10_000;
+    private static final String DIRECTORY = "bench-forecast" + File.separator;
+
+    /**
+     * Runs the benchmark and prints one line per category.
+     * @param args Command-line arguments (unused).
+     */
+    public static void main(String[] args) {
+        deletePartition();
+        ExpenseManager expenses = new ExpenseManager(DIRECTORY);
+        BudgetManager budgets = new BudgetManager(DIRECTORY, expenses);
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        List<Budget> tracked = new ArrayList<>();
+        for (int perDay : EXPENSES_PER_DAY) {
+            String category = "Category" + perDay;
+            List<Expense> batch = new ArrayList<>();
+            for (int day = 0; day < HISTORY_DAYS; day++) {
+                for (int i = 0; i < perDay; i++) {
+                    long cents = 500 + random.nextInt(2_000);
+                    batch.add(Expense.ofCents(cents, category, "Card", today.minusDays(day)));
+                }
+            }
+            expenses.addExpenses(batch);
+            // About 15.00 per expense over 90 days, so the limit is close to the expected spend
+            Budget budget = Budget.ofCents(category, 1_500L * perDay * 90, today.minusDays(30), today.plusDays(59));
+            budgets.addBudget(budget);
+            tracked.add(budget);
+        }
+
+        System.out.printf("%10s %10s %10s %10s %14s %14s %8s%n",
+                "per day", "first ms", "cached us", "again ms", "limit", "likely", "P(over)");
+        for (int i = 0; i < tracked.size(); i++) {
+            Budget budget = tracked.get(i);
+            budgets.getForecast(budget); // warm up
+            expenses.addExpense(Expense.ofCents(1_000, budget.getCategory(), "Card", today));
+
+            long start = System.nanoTime();
+            BudgetForecaster.Forecast forecast = budgets.getForecast(budget);
+            double firstMs = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            for (int call = 0; call < CACHED_CALLS; call++) {
+                budgets.getForecast(budget);
+            }
+            double cachedUs = (System.nanoTime() - start) / 1e3 / CACHED_CALLS;
+
+            expenses.addExpense(Expense.ofCents(1_000, budget.getCategory(), "Card", today));
+            start = System.nanoTime();
+            budgets.getForecast(budget);
+            double againMs = (System.nanoTime() - start) / 1e6;
+
+            System.out.printf("%10d %10.1f %10.1f %10.1f %14s %14s %8.3f%n", EXPENSES_PER_DAY[i], firstMs, cachedUs, againMs,
+                    Money.format(budget.getLimitCents()), Money.format(forecast.getMedianCents()),
+                    forecast.getOverLimitProbability());
+        }
+        deletePartition();
+    }
+
+    private static void deletePartition() {
+        File[] files = SerializationHelper.getDataFile(DIRECTORY + "x").getParentFile().listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package bench;
+
+import entities.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import managers.UserManager;
+import utils.SerializationHelper;
+
+/**
+ * Measures login latency as the number of registered users grows.
+ * <p>
+ * For each user count it writes a users.ser file, loads it through
+ * {@link UserManager} and times {@link UserManager#authenticate(String, String)}
+ * against a linear scan of the same list (the lookup login used before the index).
+ * Run from a scratch directory, since it writes into ./data.
+ * </p>
+ */
+public class LoginBenchmark {
+    private static final int[] USER_COUNTS = {1_000, 10_000, 100_000, 1_000_000};
+    private static final int LOOKUPS = 2_000;
+    private static final String USERS_FILE = "users.ser";
+
+    /**
+     * Runs the benchmark and prints one line per user count.
+     * @param args Command-line arguments (unused).
+     */
+    public static void main(String[] args) {
+        System.out.printf("%10s %12s %16s %16s%n", "users", "load ms", "index us/login", "scan us/login");
+        Random random = new Random(42);
+        for (int count : USER_COUNTS) {
+            List<User> users = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                users.add(new User("user" + i, "secret" + i, "user" + i + "@example.com"));
+            }
+            SerializationHelper.saveObject(users, USERS_FILE);
+
+            long start = System.nanoTime();
+            UserManager manager = new UserManager();
+            double loadMs = (System.nanoTime() - start) / 1e6;
+
+            String[] names = new String[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++) {
+                names[i] = "user" + random.nextInt(count);
+            }
+
+            int found = 0;
+            start = System.nanoTime();
+            for (String name : names) {
+                if (manager.authenticate(name, "secret" + name.substring(4)) != null) found++;
+            }
+            double indexUs = (System.nanoTime() - start) / 1e3 / LOOKUPS;
+
+            start = System.nanoTime();
+            for (String name : names) {
+                String password = "secret" + name.substring(4);
+                if (users.stream().anyMatch(u -> u.getUsername().equals(name) && u.validatePassword(password))) found++;
+            }
+            double scanUs = (System.nanoTime() - start) / 1e3 / LOOKUPS;
+
+            if (found != 2 * LOOKUPS) {
+                System.out.println("Unexpected failed lookups: " + (2 * LOOKUPS - found));
+            }
+            System.out.printf("%10d %12.1f %16.3f %16.3f%n", count, loadMs, indexUs, scanUs);
+        }
+        SerializationHelper.getDataFile(USERS_FILE).delete();
+    }
+}
@@ -0,0 +1,95 @@
+package bench;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import utils.Money;
+
+/**
+ * Compares summing amounts as packed cents with {@link Money} against summing doubles.
+ * <p>
+ * Amounts between $0.01 and $500.00 are summed three ways: over a {@code long[]} of
+ * cents, over a {@code double[]} and over a list of boxed {@code Double}s, as a list
+ * of records would be. Each line reports the time per million amounts, whether the
+ * double totals drifted from the exact total in cents, and the same for a total
+ * restricted to a period, masked over a column of days.
+ * </p>
+ */
+public class MoneySumBenchmark {
+    private static final int[] COUNTS = {100_000, 1_000_000, 10_000_000};
+    private static final int DAYS = 3650;
+    private static final int ROUNDS = 20;
+
+    /**
+     * Runs the benchmark and prints one line per amount count.
+     * @param args Command-line arguments (unused).
+     */
+    public static void main(String[] args) {
+        System.out.printf("%10s %14s %14s %14s %16s %14s%n",
+                "amounts", "cents ms/1M", "double ms/1M", "boxed ms/1M", "period ms/1M", "double drift $");
+        Random random = new Random(42);
+        for (int count : COUNTS) {
+            long[] cents = new long[count];
+            double[] doubles = new double[count];
+            List<Double> boxed = new ArrayList<>(count);
+            int[] days = new int[count];
+            for (int i = 0; i < count; i++) {
+                cents[i] = 1 + random.nextInt(50_000);
+                doubles[i] = cents[i] / 100.0;
+                boxed.add(doubles[i]);
+                days[i] = random.nextInt(DAYS);
+            }
+
+            long exact = 0;
+            long start = System.nanoTime();
+            for (int r = 0; r < ROUNDS; r++) {
+                exact = Money.sum(cents, 0, count);
+            }
+            double centsMs = perMillion(start, count);
+
+            double sum = 0;
+            start = System.nanoTime();
+            for (int r = 0; r < ROUNDS; r++) {
+                sum = 0;
+                for (int i = 0; i < count; i++) {
+                    sum += doubles[i];
+                }
+            }
+            double doubleMs = perMillion(start, count);
+
+            double boxedSum = 0;
+            start = System.nanoTime();
+            for (int r = 0; r < ROUNDS; r++) {
+                boxedSum = 0;
+                for (Double amount : boxed) {
+                    boxedSum += amount;
+                }
+            }
+            double boxedMs = perMillion(start, count);
+
+            long period = 0;
+            start = System.nanoTime();
+            for (int r = 0; r < ROUNDS; r++) {
+                period = Money.sumBetween(cents, days, count, DAYS / 4, DAYS / 2);
+            }
+            double periodMs = perMillion(start, count);
+
+            long expectedPeriod = 0;
+            for (int i = 0; i < count; i++) {
+                if (days[i] >= DAYS / 4 && days[i] <= DAYS / 2) expectedPeriod += cents[i];
+            }
+            if (period != expectedPeriod || boxedSum != sum) {
+                System.out.println("Totals differ: " + period + " vs " + expectedPeriod);
+            }
+            // How far the double total is from the exact total, in dollars
+            double drift = new BigDecimal(sum).subtract(BigDecimal.valueOf(exact, 2)).doubleValue();
+            System.out.printf("%10d %14.3f %14.3f %14.3f %16.3f %14.2e%n",
+                    count, centsMs, doubleMs, boxedMs, periodMs, drift);
+        }
+    }
+
+    private static double perMillion(long start, int count) {
+        return (System.nanoTime() - start) / 1e6 / ROUNDS / (count / 1e6);
+    }
+}
@@ -0,0 +1,84 @@
+package bench;
+
+import entities.Expense;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import utils.FenwickTree;
+import utils.StringDictionary;
+
+/**
+ * Compares per-category Fenwick tree range sums against a linear scan of the expenses.
+ * <p>
+ * Expenses are spread over ten years and a dozen categories; each query asks for the
+ * spend of one category between two random dates.
+ * </p>
+ */
+public class RangeSumBenchmark {
+    private static final int[] EXPENSE_COUNTS = {10_000, 100_000, 1_000_000};
+    private static final int CATEGORIES = 12;
+    private static final int DAYS = 3650;
+    private static final int QUERIES = 1_000;
+
+    /**
+     * Runs the benchmark and prints one line per expense count.
+     * @param args Command-line arguments (unused).
+     */
+    public static void main(String[] args) {
+        System.out.printf("%10s %16s %16s %10s%n", "expenses", "fenwick us/query", "scan us/query", "speedup");
+        Random random = new Random(42);
+        LocalDate first = LocalDate.of(2015, 1, 1);
+        for (int count : EXPENSE_COUNTS) {
+            List<Expense> expenses = new ArrayList<>(count);
+            FenwickTree[] trees = new FenwickTree[CATEGORIES];
+            for (int c = 0; c < CATEGORIES; c++) {
+                trees[c] = new FenwickTree();
+            }
+            for (int i = 0; i < count; i++) {
+                int category = random.nextInt(CATEGORIES);
+                Expense expense = new Expense(1 + random.nextInt(200), "Category " + category, "Card",
+                        first.plusDays(random.nextInt(DAYS)));
+                expenses.add(expense);
+                trees[category].add((int) expense.getDate().toEpochDay(), expense.getAmountCents());
+            }
+
+            int[] categories = new int[QUERIES];
+            int[] categoryIds = new int[QUERIES];
+            LocalDate[] froms = new LocalDate[QUERIES];
+            LocalDate[] tos = new LocalDate[QUERIES];
+            for (int q = 0; q < QUERIES; q++) {
+                categories[q] = random.nextInt(CATEGORIES);
+                categoryIds[q] = StringDictionary.shared().idOf("Category " + categories[q]);
+                LocalDate a = first.plusDays(random.nextInt(DAYS));
+                LocalDate b = first.plusDays(random.nextInt(DAYS));
+                froms[q] = a.isBefore(b) ? a : b;
+                tos[q] = a.isBefore(b) ? b : a;
+            }
+
+            long fenwickTotal = 0;
+            long start = System.nanoTime();
+            for (int q = 0; q < QUERIES; q++) {
+                fenwickTotal += trees[categories[q]].sum((int) froms[q].toEpochDay(), (int) tos[q].toEpochDay());
+            }
+            double fenwickUs = (System.nanoTime() - start) / 1e3 / QUERIES;
+
+            long scanTotal = 0;
+            start = System.nanoTime();
+            for (int q = 0; q < QUERIES; q++) {
+                for (Expense expense : expenses) {
+                    if (expense.getCategoryId() == categoryIds[q]
+                            && !expense.getDate().isBefore(froms[q]) && !expense.getDate().isAfter(tos[q])) {
+                        scanTotal += expense.getAmountCents();
+                    }
+                }
+            }
+            double scanUs = (System.nanoTime() - start) / 1e3 / QUERIES;
+
+            if (fenwickTotal != scanTotal) {
+                System.out.println("Totals differ: " + fenwickTotal + " vs " + scanTotal);
+            }
+            System.out.printf("%10d %16.3f %16.3f %9.0fx%n", count, fenwickUs, scanUs, scanUs / fenwickUs);
+        }
+    }
+}
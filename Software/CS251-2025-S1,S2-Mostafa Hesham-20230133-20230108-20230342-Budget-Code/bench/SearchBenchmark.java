@@ -0,0 +1,100 @@
+package bench;
+
+import entities.Expense;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import utils.TextIndex;
+
+/**
+ * Compares word and prefix searches on a {@link TextIndex} against a scan of the expenses.
+ * <p>
+ * Expenses get one of a few thousand merchants and one of a handful of payment
+ * methods, so a merchant matches a fraction of a percent of them. Queries pair a
+ * merchant with a payment method word, e.g. "shop123 card", and search once for
+ * the whole words and once for a prefix of the merchant ("shop12 card", eleven
+ * merchants). Each line reports how long building the index took, as at startup,
+ * the time per query, and the time per query of a scan for the whole words.
+ * </p>
+ */
+public class SearchBenchmark {
+    private static final int[] EXPENSE_COUNTS = {10_000, 100_000, 1_000_000};
+    private static final int MERCHANTS = 2_000;
+    private static final String[] KINDS = {"Groceries", "Transport", "Dining", "Shopping"};
+    private static final String[] METHODS = {"Cash", "Debit Card", "Credit Card", "Bank Transfer", "Wallet"};
+    private static final int QUERIES = 1_000;
+
+    /**
+     * Runs the benchmark and prints one line per expense count.
+     * @param args Command-line arguments (unused).
+     */
+    public static void main(String[] args) {
+        System.out.printf("%10s %10s %14s %14s %14s %10s%n",
+                "expenses", "build ms", "word us/query", "prefix us/query", "scan us/query", "matches");
+        Random random = new Random(42);
+        LocalDate first = LocalDate.of(2020, 1, 1);
+        for (int count : EXPENSE_COUNTS) {
+            List<Expense> expenses = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String category = KINDS[random.nextInt(KINDS.length)] + " Shop" + random.nextInt(MERCHANTS);
+                expenses.add(new Expense(1 + random.nextInt(200), category,
+                        METHODS[random.nextInt(METHODS.length)], first.plusDays(random.nextInt(1500))));
+            }
+
+            long start = System.nanoTime();
+            TextIndex index = new TextIndex();
+            for (int i = 0; i < count; i++) {
+                index.add(i, expenses.get(i).getCategory(), expenses.get(i).getPaymentMethod());
+            }
+            double buildMs = (System.nanoTime() - start) / 1e6;
+
+            String[] merchants = new String[QUERIES];
+            String[] methods = new String[QUERIES];
+            for (int q = 0; q < QUERIES; q++) {
+                merchants[q] = "shop" + (100 + random.nextInt(100));
+                methods[q] = random.nextBoolean() ? "card" : "cash";
+            }
+
+            long wordMatches = 0;
+            start = System.nanoTime();
+            for (int q = 0; q < QUERIES; q++) {
+                wordMatches += index.search(merchants[q] + " " + methods[q], false).length;
+            }
+            double wordUs = (System.nanoTime() - start) / 1e3 / QUERIES;
+
+            start = System.nanoTime();
+            for (int q = 0; q < QUERIES; q++) {
+                index.search(merchants[q].substring(0, merchants[q].length() - 1) + " " + methods[q], true);
+            }
+            double prefixUs = (System.nanoTime() - start) / 1e3 / QUERIES;
+
+            int scanned = Math.max(1, QUERIES / 100);
+            long scanMatches = 0;
+            long sampleMatches = 0;
+            start = System.nanoTime();
+            for (int q = 0; q < scanned; q++) {
+                for (Expense expense : expenses) {
+                    if (hasWord(expense.getCategory(), merchants[q]) && hasWord(expense.getPaymentMethod(), methods[q])) {
+                        scanMatches++;
+                    }
+                }
+                sampleMatches += index.search(merchants[q] + " " + methods[q], false).length;
+            }
+            double scanUs = (System.nanoTime() - start) / 1e3 / scanned;
+
+            if (scanMatches != sampleMatches) {
+                System.out.println("Matches differ: " + sampleMatches + " vs " + scanMatches);
+            }
+            System.out.printf("%10d %10.1f %14.2f %14.2f %14.0f %10.1f%n",
+                    count, buildMs, wordUs, prefixUs, scanUs, (double) wordMatches / QUERIES);
+        }
+    }
+
+    private static boolean hasWord(String text, String word) {
+        for (String part : text.split(" ")) {
+            if (part.equalsIgnoreCase(word)) return true;
+        }
+        return false;
+    }
+}
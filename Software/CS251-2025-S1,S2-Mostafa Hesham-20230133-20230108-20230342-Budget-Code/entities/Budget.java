@@ -1,7 +1,11 @@
 package entities;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDate;
+import utils.ExchangeRates;
+import utils.Money;
 
 /**
  * Represents a budget for a specific category with a spending limit
@@ -10,16 +14,22 @@ import java.time.LocalDate;
  * This class is serializable, allowing it to be saved and restored
  * across sessions or transmitted over a network.
  * </p>
+ * <p>
+ * The limit is kept in whole cents (see {@link Money}) of the budget's currency;
+ * budgets created without one are in the {@linkplain ExchangeRates#BASE_CURRENCY base currency}.
+ * </p>
  */
 public class Budget implements Serializable {
 
     // Recommended: define a serialVersionUID for Serializable classes
     private static final long serialVersionUID = 1L;
 
-    private final String category;
-    private final double limit;
-    private final LocalDate startDate;
-    private final LocalDate endDate;
+    // Not final so that readObject can also restore limits saved as doubles
+    private String category;
+    private long limitCents;
+    private String currency;
+    private LocalDate startDate;
+    private LocalDate endDate;
 
     /**
      * Constructs a Budget instance with the specified details.
@@ -30,12 +40,40 @@ public class Budget implements Serializable {
      * @param endDate   the end date of the budget period
      */
     public Budget(String category, double limit, LocalDate startDate, LocalDate endDate) {
+        this(category, Money.fromDouble(limit), ExchangeRates.BASE_CURRENCY, startDate, endDate);
+    }
+
+    private Budget(String category, long limitCents, String currency, LocalDate startDate, LocalDate endDate) {
         this.category = category;
-        this.limit = limit;
+        this.limitCents = limitCents;
+        this.currency = currency;
         this.startDate = startDate;
         this.endDate = endDate;
     }
 
+    /**
+     * Creates a budget whose limit is already in cents, e.g. parsed with {@link Money#parse}.
+     *
+     * @param category   the category name for this budget
+     * @param limitCents the spending limit in cents
+     * @param startDate  the start date of the budget period
+     * @param endDate    the end date of the budget period
+     * @return the budget, in the base currency
+     */
+    public static Budget ofCents(String category, long limitCents, LocalDate startDate, LocalDate endDate) {
+        return new Budget(category, limitCents, ExchangeRates.BASE_CURRENCY, startDate, endDate);
+    }
+
+    /**
+     * Creates a copy of this budget with the same limit in another currency.
+     *
+     * @param currency the currency code, e.g. "EUR"
+     * @return a budget with the same details in the given currency
+     */
+    public Budget inCurrency(String currency) {
+        return new Budget(category, limitCents, ExchangeRates.normalize(currency), startDate, endDate);
+    }
+
     /**
      * Gets the category of this budget.
      *
@@ -51,7 +89,25 @@ public class Budget implements Serializable {
      * @return the budget limit
      */
     public double getLimit() {
-        return limit;
+        return Money.toDouble(limitCents);
+    }
+
+    /**
+     * Gets the exact spending limit of this budget in cents.
+     *
+     * @return the budget limit in cents
+     */
+    public long getLimitCents() {
+        return limitCents;
+    }
+
+    /**
+     * Gets the currency of the limit, which spending is converted into when it is checked.
+     *
+     * @return the currency code
+     */
+    public String getCurrency() {
+        return currency;
     }
 
     /**
@@ -79,7 +135,25 @@ public class Budget implements Serializable {
      */
     @Override
     public String toString() {
-        return String.format("%s: $%.2f (%s to %s)",
-                category, limit, startDate, endDate);
+        return String.format("%s: %s (%s to %s)",
+                category, Money.format(limitCents, currency), startDate, endDate);
+    }
+
+    /**
+     * Restores a budget with its limit in cents, or as a double from before
+     * amounts were kept in cents. Budgets saved before they had a currency are
+     * in the base currency.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        category = (String) fields.get("category", null);
+        if (fields.getObjectStreamClass().getField("limit") != null) {
+            limitCents = Money.fromDouble(fields.get("limit", 0.0));
+        } else {
+            limitCents = fields.get("limitCents", 0L);
+        }
+        currency = (String) fields.get("currency", ExchangeRates.BASE_CURRENCY);
+        startDate = (LocalDate) fields.get("startDate", null);
+        endDate = (LocalDate) fields.get("endDate", null);
     }
 }
@@ -1,7 +1,12 @@
 package entities;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDate;
+import utils.ExchangeRates;
+import utils.Money;
+import utils.StringDictionary;
 
 /**
  * Represents an expense with an amount, category, payment method, and date.
@@ -9,16 +14,27 @@ import java.time.LocalDate;
  * This class implements Serializable, allowing expense objects to be
  * saved to disk or transmitted over a network.
  * </p>
+ * <p>
+ * The category and payment method are kept as ids into the shared
+ * {@link StringDictionary}, both in memory and in the serialized form.
+ * </p>
+ * <p>
+ * The amount is kept in whole cents (see {@link Money}) so that totals are exact,
+ * in the expense's currency; expenses created without one are in the
+ * {@linkplain ExchangeRates#BASE_CURRENCY base currency}.
+ * </p>
  */
 public class Expense implements Serializable {
 
     // Recommended: define a serialVersionUID for Serializable classes
     private static final long serialVersionUID = 1L;
 
-    private final double amount;
-    private final String category;
-    private final String paymentMethod;
-    private final LocalDate date;
+    // Not final so that readObject can also restore the older string-based form
+    private long amountCents;
+    private int currencyId;
+    private int categoryId;
+    private int paymentMethodId;
+    private LocalDate date;
 
     /**
      * Constructs an Expense instance with the specified details.
@@ -29,19 +45,87 @@ public class Expense implements Serializable {
      * @param date     the date of the expense
      */
     public Expense(double amount, String category, String method, LocalDate date) {
-        this.amount = amount;
-        this.category = category;
-        this.paymentMethod = method;
+        this(Money.fromDouble(amount), ExchangeRates.shared().getBaseCurrencyId(),
+                StringDictionary.shared().idOf(category), StringDictionary.shared().idOf(method), date);
+    }
+
+    private Expense(long amountCents, int currencyId, int categoryId, int paymentMethodId, LocalDate date) {
+        this.amountCents = amountCents;
+        this.currencyId = currencyId;
+        this.categoryId = categoryId;
+        this.paymentMethodId = paymentMethodId;
         this.date = date;
     }
 
+    /**
+     * Creates a copy of this expense on another date, used for the occurrences of a recurring expense.
+     *
+     * @param date the date of the copy
+     * @return an expense with the same details on the given date
+     */
+    public Expense onDate(LocalDate date) {
+        return new Expense(amountCents, currencyId, categoryId, paymentMethodId, date);
+    }
+
+    /**
+     * Creates a copy of this expense with the same amount in another currency.
+     *
+     * @param currency the currency code, e.g. "EUR"
+     * @return an expense with the same details in the given currency
+     */
+    public Expense inCurrency(String currency) {
+        return new Expense(amountCents, StringDictionary.shared().idOf(ExchangeRates.normalize(currency)),
+                categoryId, paymentMethodId, date);
+    }
+
+    /**
+     * Creates an expense whose amount is already in cents, e.g. parsed with {@link Money#parse}.
+     *
+     * @param amountCents the amount of the expense in cents
+     * @param category    the category of the expense
+     * @param method      the payment method used
+     * @param date        the date of the expense
+     * @return the expense, in the base currency
+     */
+    public static Expense ofCents(long amountCents, String category, String method, LocalDate date) {
+        return new Expense(amountCents, ExchangeRates.shared().getBaseCurrencyId(),
+                StringDictionary.shared().idOf(category), StringDictionary.shared().idOf(method), date);
+    }
+
     /**
      * Gets the amount of this expense.
      *
      * @return the expense amount
      */
     public double getAmount() {
-        return amount;
+        return Money.toDouble(amountCents);
+    }
+
+    /**
+     * Gets the exact amount of this expense in cents.
+     *
+     * @return the expense amount in cents
+     */
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    /**
+     * Gets the currency of the amount of this expense.
+     *
+     * @return the currency code
+     */
+    public String getCurrency() {
+        return StringDictionary.shared().valueOf(currencyId);
+    }
+
+    /**
+     * Gets the dictionary id of the currency of this expense.
+     *
+     * @return the currency id
+     */
+    public int getCurrencyId() {
+        return currencyId;
     }
 
     /**
@@ -50,7 +134,16 @@ public class Expense implements Serializable {
      * @return the expense category
      */
     public String getCategory() {
-        return category;
+        return StringDictionary.shared().valueOf(categoryId);
+    }
+
+    /**
+     * Gets the dictionary id of the category of this expense.
+     *
+     * @return the category id
+     */
+    public int getCategoryId() {
+        return categoryId;
     }
 
     /**
@@ -59,7 +152,16 @@ public class Expense implements Serializable {
      * @return the payment method
      */
     public String getPaymentMethod() {
-        return paymentMethod;
+        return StringDictionary.shared().valueOf(paymentMethodId);
+    }
+
+    /**
+     * Gets the dictionary id of the payment method of this expense.
+     *
+     * @return the payment method id
+     */
+    public int getPaymentMethodId() {
+        return paymentMethodId;
     }
 
     /**
@@ -79,7 +181,35 @@ public class Expense implements Serializable {
      */
     @Override
     public String toString() {
-        return String.format("[Expense] $%.2f on %s (%s) - %s",
-                amount, category, paymentMethod, date);
+        return String.format("[Expense] %s on %s (%s) - %s",
+                Money.format(amountCents, getCurrency()), getCategory(), getPaymentMethod(), date);
+    }
+
+    /**
+     * Restores an expense from either the dictionary-encoded form or the older
+     * form that stored the category and payment method as strings, with the
+     * amount in cents or as a double from before amounts were kept in cents.
+     * Expenses saved before they had a currency are in the base currency.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        if (fields.getObjectStreamClass().getField("amount") != null) {
+            amountCents = Money.fromDouble(fields.get("amount", 0.0));
+        } else {
+            amountCents = fields.get("amountCents", 0L);
+        }
+        if (fields.getObjectStreamClass().getField("currencyId") != null) {
+            currencyId = fields.get("currencyId", 0);
+        } else {
+            currencyId = ExchangeRates.shared().getBaseCurrencyId();
+        }
+        date = (LocalDate) fields.get("date", null);
+        if (fields.getObjectStreamClass().getField("category") != null) {
+            categoryId = StringDictionary.shared().idOf((String) fields.get("category", null));
+            paymentMethodId = StringDictionary.shared().idOf((String) fields.get("paymentMethod", null));
+        } else {
+            categoryId = fields.get("categoryId", 0);
+            paymentMethodId = fields.get("paymentMethodId", 0);
+        }
     }
 }
@@ -1,7 +1,12 @@
 package entities;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDate;
+import utils.ExchangeRates;
+import utils.Money;
+import utils.StringDictionary;
 
 /**
  * Represents an income entry with an amount, source, and date.
@@ -9,15 +14,26 @@ import java.time.LocalDate;
  * This class implements Serializable, allowing income objects to be
  * saved to disk or transmitted over a network.
  * </p>
+ * <p>
+ * The source is kept as an id into the shared {@link StringDictionary},
+ * both in memory and in the serialized form.
+ * </p>
+ * <p>
+ * The amount is kept in whole cents (see {@link Money}) so that totals are exact,
+ * in the income's currency; incomes created without one are in the
+ * {@linkplain ExchangeRates#BASE_CURRENCY base currency}.
+ * </p>
  */
 public class Income implements Serializable {
 
     // Recommended: define a serialVersionUID for Serializable classes
     private static final long serialVersionUID = 1L;
 
-    private final double amount;
-    private final String source;
-    private final LocalDate date;
+    // Not final so that readObject can also restore the older string-based form
+    private long amountCents;
+    private int currencyId;
+    private int sourceId;
+    private LocalDate date;
 
     /**
      * Constructs an Income instance with the specified details.
@@ -27,18 +43,85 @@ public class Income implements Serializable {
      * @param date   the date the income was received
      */
     public Income(double amount, String source, LocalDate date) {
-        this.amount = amount;
-        this.source = source;
+        this(Money.fromDouble(amount), ExchangeRates.shared().getBaseCurrencyId(),
+                StringDictionary.shared().idOf(source), date);
+    }
+
+    private Income(long amountCents, int currencyId, int sourceId, LocalDate date) {
+        this.amountCents = amountCents;
+        this.currencyId = currencyId;
+        this.sourceId = sourceId;
         this.date = date;
     }
 
+    /**
+     * Creates a copy of this income on another date, used for the occurrences of a recurring income.
+     *
+     * @param date the date of the copy
+     * @return an income with the same details on the given date
+     */
+    public Income onDate(LocalDate date) {
+        return new Income(amountCents, currencyId, sourceId, date);
+    }
+
+    /**
+     * Creates a copy of this income with the same amount in another currency.
+     *
+     * @param currency the currency code, e.g. "EUR"
+     * @return an income with the same details in the given currency
+     */
+    public Income inCurrency(String currency) {
+        return new Income(amountCents, StringDictionary.shared().idOf(ExchangeRates.normalize(currency)),
+                sourceId, date);
+    }
+
+    /**
+     * Creates an income whose amount is already in cents, e.g. parsed with {@link Money#parse}.
+     *
+     * @param amountCents the amount of the income in cents
+     * @param source      the source of the income
+     * @param date        the date the income was received
+     * @return the income, in the base currency
+     */
+    public static Income ofCents(long amountCents, String source, LocalDate date) {
+        return new Income(amountCents, ExchangeRates.shared().getBaseCurrencyId(),
+                StringDictionary.shared().idOf(source), date);
+    }
+
     /**
      * Gets the amount of this income.
      *
      * @return the income amount
      */
     public double getAmount() {
-        return amount;
+        return Money.toDouble(amountCents);
+    }
+
+    /**
+     * Gets the exact amount of this income in cents.
+     *
+     * @return the income amount in cents
+     */
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    /**
+     * Gets the currency of the amount of this income.
+     *
+     * @return the currency code
+     */
+    public String getCurrency() {
+        return StringDictionary.shared().valueOf(currencyId);
+    }
+
+    /**
+     * Gets the dictionary id of the currency of this income.
+     *
+     * @return the currency id
+     */
+    public int getCurrencyId() {
+        return currencyId;
     }
 
     /**
@@ -47,7 +130,16 @@ public class Income implements Serializable {
      * @return the income source
      */
     public String getSource() {
-        return source;
+        return StringDictionary.shared().valueOf(sourceId);
+    }
+
+    /**
+     * Gets the dictionary id of the source of this income.
+     *
+     * @return the source id
+     */
+    public int getSourceId() {
+        return sourceId;
     }
 
     /**
@@ -66,6 +158,32 @@ public class Income implements Serializable {
      */
     @Override
     public String toString() {
-        return String.format("[Income] $%.2f from %s on %s", amount, source, date);
+        return String.format("[Income] %s from %s on %s", Money.format(amountCents, getCurrency()), getSource(), date);
+    }
+
+    /**
+     * Restores an income from either the dictionary-encoded form or the older
+     * form that stored the source as a string, with the amount in cents or as a
+     * double from before amounts were kept in cents. Incomes saved before they
+     * had a currency are in the base currency.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        if (fields.getObjectStreamClass().getField("amount") != null) {
+            amountCents = Money.fromDouble(fields.get("amount", 0.0));
+        } else {
+            amountCents = fields.get("amountCents", 0L);
+        }
+        if (fields.getObjectStreamClass().getField("currencyId") != null) {
+            currencyId = fields.get("currencyId", 0);
+        } else {
+            currencyId = ExchangeRates.shared().getBaseCurrencyId();
+        }
+        date = (LocalDate) fields.get("date", null);
+        if (fields.getObjectStreamClass().getField("source") != null) {
+            sourceId = StringDictionary.shared().idOf((String) fields.get("source", null));
+        } else {
+            sourceId = fields.get("sourceId", 0);
+        }
     }
 }
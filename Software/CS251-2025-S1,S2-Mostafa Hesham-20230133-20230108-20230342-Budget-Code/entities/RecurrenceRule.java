@@ -0,0 +1,128 @@
+package entities;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Describes when a recurring entry repeats: every given number of days, weeks
+ * or months from a start date, optionally until an end date.
+ * <p>
+ * Occurrences are computed rather than stored, so the n-th occurrence and the
+ * number of occurrences in a period are found in constant time.
+ * Monthly occurrences are always counted from the start date, so a rule starting
+ * on the 31st falls on the last day of shorter months without drifting.
+ * </p>
+ */
+public class RecurrenceRule implements Serializable {
+
+    // Recommended: define a serialVersionUID for Serializable classes
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The unit a rule repeats in.
+     */
+    public enum Frequency {
+        DAILY("day"), WEEKLY("week"), MONTHLY("month");
+
+        private final String unit;
+
+        Frequency(String unit) {
+            this.unit = unit;
+        }
+    }
+
+    private final Frequency frequency;
+    private final int interval;
+    private final LocalDate start;
+    private final LocalDate end;
+
+    /**
+     * Constructs a RecurrenceRule instance with the specified details.
+     *
+     * @param frequency the unit the rule repeats in
+     * @param interval  how many units pass between occurrences (1 for every unit)
+     * @param start     the date of the first occurrence
+     * @param end       the last date an occurrence may fall on, or null if the rule never ends
+     */
+    public RecurrenceRule(Frequency frequency, int interval, LocalDate start, LocalDate end) {
+        if (interval < 1) throw new IllegalArgumentException("Interval must be positive");
+        this.frequency = frequency;
+        this.interval = interval;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Gets the date of the first occurrence.
+     *
+     * @return the start date
+     */
+    public LocalDate getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the date of an occurrence.
+     *
+     * @param index the zero-based occurrence number
+     * @return the date of that occurrence
+     */
+    public LocalDate occurrence(long index) {
+        switch (frequency) {
+            case DAILY:
+                return start.plusDays(index * interval);
+            case WEEKLY:
+                return start.plusWeeks(index * interval);
+            default:
+                return start.plusMonths(index * interval);
+        }
+    }
+
+    /**
+     * Counts the occurrences on or before a date.
+     *
+     * @param date the last date to count (inclusive)
+     * @return the number of occurrences up to that date
+     */
+    public long countThrough(LocalDate date) {
+        LocalDate last = (end != null && end.isBefore(date)) ? end : date;
+        if (last.isBefore(start)) return 0;
+        long index;
+        switch (frequency) {
+            case DAILY:
+                index = ChronoUnit.DAYS.between(start, last) / interval;
+                break;
+            case WEEKLY:
+                index = ChronoUnit.WEEKS.between(start, last) / interval;
+                break;
+            default:
+                index = ChronoUnit.MONTHS.between(start.withDayOfMonth(1), last.withDayOfMonth(1)) / interval;
+                if (occurrence(index).isAfter(last)) index--;
+        }
+        return index + 1;
+    }
+
+    /**
+     * Counts the occurrences within a period.
+     *
+     * @param from the first day of the period (inclusive)
+     * @param to   the last day of the period (inclusive)
+     * @return the number of occurrences in the period
+     */
+    public long countBetween(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) return 0;
+        return countThrough(to) - countThrough(from.minusDays(1));
+    }
+
+    /**
+     * Returns a string representation of the rule.
+     *
+     * @return a description such as "every 2 weeks from 2025-01-06"
+     */
+    @Override
+    public String toString() {
+        String every = (interval == 1) ? "every " + frequency.unit : "every " + interval + " " + frequency.unit + "s";
+        return every + " from " + start + ((end != null) ? " until " + end : "");
+    }
+}
@@ -0,0 +1,60 @@
+package entities;
+
+import java.io.Serializable;
+
+/**
+ * A template record that repeats according to a {@link RecurrenceRule}.
+ * <p>
+ * Only the template and the rule are stored. Each occurrence is a copy of the
+ * template dated on one of the rule's dates, created when a query needs it.
+ * </p>
+ *
+ * @param <T> the type of record that recurs
+ */
+public class RecurringEntry<T extends Serializable> implements Serializable {
+
+    // Recommended: define a serialVersionUID for Serializable classes
+    private static final long serialVersionUID = 1L;
+
+    private final T template;
+    private final RecurrenceRule rule;
+
+    /**
+     * Constructs a RecurringEntry instance with the specified details.
+     *
+     * @param template the record to repeat; its own date is ignored
+     * @param rule     when the record repeats
+     */
+    public RecurringEntry(T template, RecurrenceRule rule) {
+        this.template = template;
+        this.rule = rule;
+    }
+
+    /**
+     * Gets the record that is repeated.
+     *
+     * @return the template record
+     */
+    public T getTemplate() {
+        return template;
+    }
+
+    /**
+     * Gets the rule that decides when the record repeats.
+     *
+     * @return the recurrence rule
+     */
+    public RecurrenceRule getRule() {
+        return rule;
+    }
+
+    /**
+     * Returns a string representation of the recurring entry.
+     *
+     * @return the template followed by its rule
+     */
+    @Override
+    public String toString() {
+        return template + ", " + rule;
+    }
+}
@@ -2,6 +2,7 @@ package entities;
 
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 /**
@@ -19,6 +20,7 @@ public class Reminder implements Serializable {
     private final String title;
     private final LocalDate date;
     private final LocalTime time;
+    private volatile boolean fired;
 
     /**
      * Constructs a Reminder instance with the specified details.
@@ -60,6 +62,31 @@ public class Reminder implements Serializable {
         return time;
     }
 
+    /**
+     * Gets the date and time at which this reminder is due.
+     *
+     * @return the due date and time
+     */
+    public LocalDateTime getDueAt() {
+        return LocalDateTime.of(date, time);
+    }
+
+    /**
+     * Checks whether this reminder has already fired.
+     *
+     * @return true if the reminder has fired, false if it is still pending
+     */
+    public boolean isFired() {
+        return fired;
+    }
+
+    /**
+     * Marks this reminder as fired so it is not triggered again.
+     */
+    public void markFired() {
+        fired = true;
+    }
+
     /**
      * Returns a string representation of the reminder.
      *
@@ -0,0 +1,87 @@
+package bench.jmh;
+
+import entities.Expense;
+import entities.User;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+import utils.SerializationHelper;
+
+/**
+ * Reproducible datasets for the benchmarks.
+ * <p>
+ * Every dataset is generated from a fixed seed, so the same record count always
+ * yields the same records and runs on different commits measure the same work.
+ * Amounts, categories, payment methods and dates follow a rough household-spending
+ * shape: a dozen categories, five payment methods and three years of dates.
+ * </p>
+ */
+final class Datasets {
+    static final long SEED = 20250101L;
+    static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+    static final int DAYS = 3 * 365;
+    static final String[] CATEGORIES = {"Food", "Rent", "Transport", "Utilities", "Health", "Leisure",
+            "Clothing", "Education", "Gifts", "Travel", "Insurance", "Other"};
+    static final String[] METHODS = {"Cash", "Credit Card", "Debit Card", "Bank", "Wallet"};
+
+    private Datasets() {
+    }
+
+    /**
+     * Generates expenses.
+     * @param count the number of expenses
+     * @return the same expenses for the same count, in insertion order
+     */
+    static List<Expense> expenses(int count) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            expenses.add(expense(random));
+        }
+        return expenses;
+    }
+
+    /**
+     * Generates one more expense from a random stream, for insert benchmarks.
+     * @param random the stream to draw from
+     * @return a new expense
+     */
+    static Expense expense(SplittableRandom random) {
+        long cents = Math.round(random.nextDouble(1, 500) * 100);
+        return Expense.ofCents(cents, CATEGORIES[random.nextInt(CATEGORIES.length)],
+                METHODS[random.nextInt(METHODS.length)], FIRST_DAY.plusDays(random.nextInt(DAYS)));
+    }
+
+    /**
+     * Generates users named user0, user1, ... with the password secret0, secret1, ...
+     * @param count the number of users
+     * @return the users in registration order
+     */
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(new User("user" + i, "secret" + i, "user" + i + "@example.com"));
+        }
+        return users;
+    }
+
+    /**
+     * Deletes a directory inside the data directory along with everything in it.
+     * @param directory the directory, relative to the data directory
+     */
+    static void delete(String directory) {
+        Path path = SerializationHelper.getDataFile(directory + File.separator + "x").toPath().getParent();
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Error deleting " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package bench.jmh;
+
+import entities.Expense;
+import java.io.File;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import managers.ExpenseManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.Filters;
+import utils.PagedView;
+
+/**
+ * Cost of rendering a page of the expense history, the way the history menu does,
+ * and of a period query, as the history grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+    private static final String DIRECTORY = "jmh-history";
+    private static final LocalDate TODAY = Datasets.FIRST_DAY.plusDays(Datasets.DAYS);
+
+    @Param({"10000", "100000", "1000000"})
+    public int records;
+
+    private ExpenseManager manager;
+    private Predicate<Expense> rareFilter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Datasets.delete(DIRECTORY);
+        manager = new ExpenseManager(DIRECTORY + File.separator);
+        manager.addExpenses(Datasets.expenses(records));
+        // About one expense in a hundred: one category and amounts above $450
+        rareFilter = Filters.dictionaryText(Expense::getCategoryId, "Travel")
+                .and(Filters.amountRange(Expense::getAmount, 450.0, null));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Datasets.delete(DIRECTORY);
+    }
+
+    @Benchmark
+    public String firstPage() {
+        return render(expense -> true);
+    }
+
+    @Benchmark
+    public String filteredPage() {
+        return render(rareFilter);
+    }
+
+    @Benchmark
+    public int periodQuery() {
+        return manager.getExpensesBetween(TODAY.minusDays(30), TODAY).size();
+    }
+
+    private String render(Predicate<Expense> filter) {
+        List<Expense> history = manager.getExpensesThrough(TODAY);
+        PagedView.Page<Expense> page = new PagedView<>(history, filter, Expense::toString).fetch(0);
+        StringBuilder out = new StringBuilder();
+        for (Expense expense : page.getRows()) {
+            out.append(expense).append('\n');
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package bench.jmh;
+
+import entities.Expense;
+import java.io.File;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import managers.ExpenseManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of {@link ExpenseManager#addExpense(Expense)} on top of an existing history.
+ * Sampled rather than averaged, so the percentiles show the occasional log compaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertBenchmark {
+    private static final String DIRECTORY = "jmh-insert";
+    private static final int PENDING = 4096;
+
+    @Param({"0", "10000", "100000"})
+    public int history;
+
+    private ExpenseManager manager;
+    private Expense[] pending;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Datasets.delete(DIRECTORY);
+        manager = new ExpenseManager(DIRECTORY + File.separator);
+        manager.addExpenses(Datasets.expenses(history));
+        SplittableRandom random = new SplittableRandom(Datasets.SEED + 1);
+        pending = new Expense[PENDING];
+        for (int i = 0; i < PENDING; i++) {
+            pending[i] = Datasets.expense(random);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Datasets.delete(DIRECTORY);
+    }
+
+    @Benchmark
+    public void addExpense() {
+        manager.addExpense(pending[next++ & (PENDING - 1)]);
+    }
+}
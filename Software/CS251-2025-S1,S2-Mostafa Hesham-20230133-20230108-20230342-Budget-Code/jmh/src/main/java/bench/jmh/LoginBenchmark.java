@@ -0,0 +1,83 @@
+package bench.jmh;
+
+import entities.User;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import managers.UserManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.SerializationHelper;
+
+/**
+ * Cost of a login ({@link UserManager#authenticate(String, String)}) and of loading
+ * the users as the number of registered users grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoginBenchmark {
+    private static final String USERS_FILE = "users.ser";
+    private static final int NAMES = 4096;
+
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    private UserManager manager;
+    private String[] names;
+    private String[] passwords;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SerializationHelper.saveObject(Datasets.users(users), USERS_FILE);
+        manager = new UserManager();
+        SplittableRandom random = new SplittableRandom(Datasets.SEED);
+        names = new String[NAMES];
+        passwords = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            int user = random.nextInt(users);
+            names[i] = "user" + user;
+            passwords[i] = "secret" + user;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SerializationHelper.getDataFile(USERS_FILE).delete();
+    }
+
+    @Benchmark
+    public User login() {
+        int i = next++ & (NAMES - 1);
+        return manager.authenticate(names[i], passwords[i]);
+    }
+
+    @Benchmark
+    public User failedLogin() {
+        int i = next++ & (NAMES - 1);
+        return manager.authenticate(names[i], "wrong");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public UserManager loadUsers() {
+        return new UserManager();
+    }
+}
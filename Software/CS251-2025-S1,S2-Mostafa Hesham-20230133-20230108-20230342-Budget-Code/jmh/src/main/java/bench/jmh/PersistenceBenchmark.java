@@ -0,0 +1,64 @@
+package bench.jmh;
+
+import entities.Expense;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.SerializationHelper;
+
+/**
+ * Cost of {@link SerializationHelper#saveObject(Object, String)} and
+ * {@link SerializationHelper#loadObject(String)} as the saved list grows.
+ * A save includes the fsync and the atomic rename, so its numbers depend on the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+    private static final String DIRECTORY = "jmh-persistence";
+
+    @Param({"1000", "10000", "100000"})
+    public int records;
+
+    private List<Expense> expenses;
+    private String file;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        expenses = new ArrayList<>(Datasets.expenses(records));
+        file = DIRECTORY + File.separator + "expenses-" + records + ".ser";
+        SerializationHelper.saveObject(expenses, file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Datasets.delete(DIRECTORY);
+    }
+
+    @Benchmark
+    public boolean save() {
+        return SerializationHelper.saveObject(expenses, file);
+    }
+
+    @Benchmark
+    public Object load() {
+        return SerializationHelper.loadObject(file);
+    }
+}
@@ -0,0 +1,172 @@
+package managers;
+
+import entities.Expense;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import utils.ExchangeRates;
+import utils.Money;
+import utils.RunningStats;
+
+/**
+ * Flags expenses that look unusual for their category as they are added.
+ * <p>
+ * Each category keeps {@link RunningStats} of its amounts and the counts of the
+ * few payment methods used most for it. An expense is flagged when its amount
+ * is well above both the category's long-run mean and the mean of its latest
+ * expenses, so a category whose spending drifts upwards stops being flagged, or
+ * when it is paid with a method the category hardly ever uses. Checking an
+ * expense takes constant time and each category uses a fixed amount of memory,
+ * so the check runs on every insert, bulk imports included. Amounts in other
+ * currencies are compared in the base currency, at the rate of their date.
+ * </p>
+ * <p>
+ * The detector is safe to use from several threads; inserts only contend when
+ * they are in the same category.
+ * </p>
+ */
+public class AnomalyDetector {
+    private static final int WINDOW = 32;
+    private static final int MIN_HISTORY = 10;
+    private static final double THRESHOLD = 3.0; // standard deviations above the mean
+    // The spread assumed for a category at least, so one cent above a run of equal amounts is not flagged
+    private static final double MIN_DEVIATION_SHARE = 0.1;
+    private static final int METHOD_SLOTS = 8;
+    private static final int MIN_METHOD_HISTORY = 20;
+    private static final double RARE_METHOD_SHARE = 0.05;
+
+    private final Map<Integer, CategoryStats> byCategory = new ConcurrentHashMap<>();
+
+    /**
+     * Adds an expense to the statistics of its category without checking it,
+     * e.g. while loading the history.
+     * @param expense the expense to learn from
+     */
+    public void learn(Expense expense) {
+        statsOf(expense).check(expense, false);
+    }
+
+    /**
+     * Checks an expense against the statistics of its category, then adds it to them.
+     * @param expense the expense that was just added
+     * @return why the expense is unusual, or null if it is not
+     */
+    public Anomaly check(Expense expense) {
+        return statsOf(expense).check(expense, true);
+    }
+
+    private CategoryStats statsOf(Expense expense) {
+        return byCategory.computeIfAbsent(expense.getCategoryId(), id -> new CategoryStats());
+    }
+
+    /**
+     * An expense that was flagged, with the reason.
+     */
+    public static class Anomaly {
+        private final Expense expense;
+        private final String reason;
+
+        Anomaly(Expense expense, String reason) {
+            this.expense = expense;
+            this.reason = reason;
+        }
+
+        /**
+         * Gets the flagged expense.
+         * @return the expense
+         */
+        public Expense getExpense() {
+            return expense;
+        }
+
+        /**
+         * Gets why the expense was flagged.
+         * @return the reason
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return expense + ": " + reason;
+        }
+    }
+
+    /**
+     * The amounts and the most used payment methods of one category.
+     * Methods are counted in a fixed number of slots; a method that is not in a slot
+     * takes over the least used one and inherits its count, so the counts of the
+     * methods that stay in the slots are never underestimated.
+     */
+    private static class CategoryStats {
+        private final RunningStats amounts = new RunningStats(WINDOW);
+        private final int[] methodIds = new int[METHOD_SLOTS];
+        private final long[] methodCounts = new long[METHOD_SLOTS];
+        private int methods;
+
+        synchronized Anomaly check(Expense expense, boolean flag) {
+            String reason = null;
+            if (flag) {
+                String amountReason = checkAmount(expense);
+                String methodReason = checkMethod(expense);
+                if (amountReason != null && methodReason != null) {
+                    reason = amountReason + "; " + methodReason;
+                } else {
+                    reason = (amountReason != null) ? amountReason : methodReason;
+                }
+            }
+            amounts.add(baseAmount(expense));
+            countMethod(expense.getPaymentMethodId());
+            return (reason != null) ? new Anomaly(expense, reason) : null;
+        }
+
+        private String checkAmount(Expense expense) {
+            if (amounts.getCount() < MIN_HISTORY) return null;
+            double amount = baseAmount(expense);
+            double mean = amounts.getMean();
+            double deviation = Math.max(amounts.getStandardDeviation(), mean * MIN_DEVIATION_SHARE);
+            double recentMean = amounts.getRecentMean();
+            double recentDeviation = Math.max(amounts.getRecentStandardDeviation(), recentMean * MIN_DEVIATION_SHARE);
+            if (amount <= mean + THRESHOLD * deviation || amount <= recentMean + THRESHOLD * recentDeviation) {
+                return null;
+            }
+            return String.format("$%.2f is %.1f standard deviations above the usual $%.2f for %s",
+                    amount, (amount - mean) / deviation, mean, expense.getCategory());
+        }
+
+        private String checkMethod(Expense expense) {
+            long total = amounts.getCount();
+            if (total < MIN_METHOD_HISTORY) return null;
+            long uses = 0;
+            for (int i = 0; i < methods; i++) {
+                if (methodIds[i] == expense.getPaymentMethodId()) uses = methodCounts[i];
+            }
+            if (uses >= RARE_METHOD_SHARE * total) return null;
+            return String.format("%s is rarely used for %s (%d of %d expenses)",
+                    expense.getPaymentMethod(), expense.getCategory(), uses, total);
+        }
+
+        private static double baseAmount(Expense expense) {
+            return Money.toDouble(ExchangeRates.shared().toBase(expense.getAmountCents(), expense.getCurrencyId(),
+                    (int) expense.getDate().toEpochDay()));
+        }
+
+        private void countMethod(int methodId) {
+            int least = 0;
+            for (int i = 0; i < methods; i++) {
+                if (methodIds[i] == methodId) {
+                    methodCounts[i]++;
+                    return;
+                }
+                if (methodCounts[i] < methodCounts[least]) least = i;
+            }
+            if (methods < METHOD_SLOTS) {
+                methodIds[methods] = methodId;
+                methodCounts[methods++] = 1;
+            } else {
+                methodIds[least] = methodId;
+                methodCounts[least]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package managers;
+
+import entities.Budget;
+import entities.Expense;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import utils.ExchangeRates;
+import utils.Metrics;
+import utils.StringDictionary;
+
+/**
+ * Forecasts how likely budgets are to end over their limit, by Monte Carlo simulation.
+ * <p>
+ * The spending still to come in a budget's period is simulated along thousands of
+ * paths, drawn from the category's expenses of the last year: on each path the
+ * number of expenses in the remaining days is drawn from a Poisson distribution at
+ * the category's daily rate, and each amount is drawn from the category's past
+ * amounts. What is already spent, including recurring expenses scheduled up to the
+ * end of the period, is added as it is. The share of paths that end over the limit
+ * is the probability of going over.
+ * </p>
+ * <p>
+ * The paths are split over the common fork-join pool. Each piece draws from its own
+ * {@link SplittableRandom}, split off its parent's before the piece is forked, so the
+ * workers share no state. A forecast is kept until an expense or recurring expense
+ * is added to the budget's category, or until the next day.
+ * </p>
+ */
+public class BudgetForecaster {
+    private static final int PATHS = 10_000;
+    private static final int LEAF_PATHS = 500;
+    private static final int HISTORY_DAYS = 365;
+    // A category seen for only a few days is not assumed to keep up its first burst of spending
+    private static final int MIN_HISTORY_DAYS = 30;
+    // Above this mean the number of expenses is drawn from the normal approximation
+    private static final double NORMAL_POISSON_MEAN = 30;
+    // Above this many expenses a path draws their sum from the normal approximation
+    private static final int MAX_DRAWS = 256;
+
+    private final BudgetTracker tracker;
+    private final ExpenseManager expenseManager;
+    // A category's map is dropped when an expense arrives in it, so a forecast that
+    // was being simulated meanwhile is stored in a map that is no longer read. Keyed by
+    // name, so a category that has no dictionary id yet is dropped by its first expense.
+    private final Map<String, Map<Budget, Forecast>> byCategory = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a forecaster for the budgets of one tracker. The tracker must be created
+     * first, so it has counted a new expense by the time the forecasts are dropped.
+     * @param expenseManager the expenses the budgets are tracked against
+     * @param tracker the running totals of the budgets
+     */
+    public BudgetForecaster(ExpenseManager expenseManager, BudgetTracker tracker) {
+        this.expenseManager = expenseManager;
+        this.tracker = tracker;
+        expenseManager.addListener(expense -> byCategory.remove(expense.getCategory()));
+        expenseManager.addRecurringListener(entry -> byCategory.remove(entry.getTemplate().getCategory()));
+    }
+
+    /**
+     * Gets the forecast of a budget, simulating it unless a current one is cached.
+     * @param budget a tracked budget
+     * @return the forecast, or null if the budget has ended
+     */
+    public Forecast forecast(Budget budget) {
+        LocalDate today = LocalDate.now();
+        if (budget.getEndDate().isBefore(today)) return null;
+        Map<Budget, Forecast> forecasts = byCategory.computeIfAbsent(budget.getCategory(), name -> new ConcurrentHashMap<>());
+        Forecast forecast = forecasts.get(budget);
+        if (forecast == null || !forecast.day.equals(today)) {
+            forecast = simulate(budget, StringDictionary.shared().find(budget.getCategory()), today);
+            forecasts.put(budget, forecast);
+        }
+        return forecast;
+    }
+
+    /**
+     * Simulates the rest of a budget's period, comparing in the base currency.
+     */
+    private Forecast simulate(Budget budget, int categoryId, LocalDate today) {
+        ExchangeRates rates = ExchangeRates.shared();
+        int currencyId = rates.currencyId(budget.getCurrency());
+        int rateDay = (int) today.toEpochDay();
+        long limit = rates.toBase(budget.getLimitCents(), currencyId, rateDay);
+        long spent = tracker.getSpentBaseCents(budget);
+        LocalDate first = budget.getStartDate().isAfter(today) ? budget.getStartDate() : today.plusDays(1);
+        long remainingDays = Math.max(0, ChronoUnit.DAYS.between(first, budget.getEndDate()) + 1);
+
+        History history = history(categoryId, today);
+        double expectedCount = history.dailyCount * remainingDays;
+        long[] totals = new long[PATHS];
+        ForkJoinPool.commonPool().invoke(new PathTask(history, expectedCount, spent, totals, 0, PATHS, new SplittableRandom()));
+        int over = 0;
+        for (long total : totals) {
+            if (total > limit) over++;
+        }
+        Arrays.sort(totals);
+        Metrics.increment("budgets.forecasts");
+        return new Forecast(today, (double) over / PATHS, rates.fromBase(totals[PATHS / 2], currencyId, rateDay),
+                rates.fromBase(totals[PATHS * 9 / 10], currencyId, rateDay));
+    }
+
+    /**
+     * Collects the amounts of the category's expenses dated within the last year.
+     * A category without a dictionary id (-1) has none.
+     */
+    private History history(int categoryId, LocalDate today) {
+        ExchangeRates rates = ExchangeRates.shared();
+        LocalDate from = today.minusDays(HISTORY_DAYS - 1);
+        long[] amounts = new long[16];
+        int count = 0;
+        LocalDate earliest = today;
+        List<Expense> expenses = (categoryId >= 0) ? expenseManager.getStoredExpensesBetween(categoryId, from, today)
+                : Collections.emptyList();
+        for (Expense expense : expenses) {
+            LocalDate date = expense.getDate();
+            if (count == amounts.length) amounts = Arrays.copyOf(amounts, count * 2);
+            amounts[count++] = rates.toBase(expense.getAmountCents(), expense.getCurrencyId(), (int) date.toEpochDay());
+            if (date.isBefore(earliest)) earliest = date;
+        }
+        long days = Math.max(MIN_HISTORY_DAYS, ChronoUnit.DAYS.between(earliest, today) + 1);
+        return new History(Arrays.copyOf(amounts, count), (double) count / days);
+    }
+
+    /**
+     * The past amounts of a category and how many expenses it has per day.
+     */
+    private static class History {
+        final long[] amounts;
+        final double dailyCount;
+        final double mean;
+        final double deviation;
+
+        History(long[] amounts, double dailyCount) {
+            this.amounts = amounts;
+            this.dailyCount = dailyCount;
+            double sum = 0;
+            double sumOfSquares = 0;
+            for (long amount : amounts) {
+                sum += amount;
+                sumOfSquares += (double) amount * amount;
+            }
+            int n = amounts.length;
+            mean = (n > 0) ? sum / n : 0;
+            deviation = (n > 1) ? Math.sqrt(Math.max(0, (sumOfSquares - sum * mean) / (n - 1))) : 0;
+        }
+    }
+
+    /**
+     * Simulates a range of paths, writing each path's total spend into its slot.
+     */
+    private static class PathTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient History history;
+        private final double expectedCount;
+        private final long spent;
+        private final long[] totals;
+        private final int from;
+        private final int to;
+        private final transient SplittableRandom random;
+
+        PathTask(History history, double expectedCount, long spent, long[] totals, int from, int to, SplittableRandom random) {
+            this.history = history;
+            this.expectedCount = expectedCount;
+            this.spent = spent;
+            this.totals = totals;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_PATHS) {
+                for (int i = from; i < to; i++) {
+                    totals[i] = spent + futureSpend();
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            PathTask left = new PathTask(history, expectedCount, spent, totals, from, middle, random.split());
+            left.fork();
+            new PathTask(history, expectedCount, spent, totals, middle, to, random).compute();
+            left.join();
+        }
+
+        private long futureSpend() {
+            long[] amounts = history.amounts;
+            if (amounts.length == 0) return 0;
+            long count = expenseCount();
+            if (count <= MAX_DRAWS) {
+                long sum = 0;
+                for (long i = 0; i < count; i++) {
+                    sum += amounts[random.nextInt(amounts.length)];
+                }
+                return sum;
+            }
+            // The sum of many draws is close to normal, by the central limit theorem
+            return Math.max(0, Math.round(count * history.mean + Math.sqrt(count) * history.deviation * random.nextGaussian()));
+        }
+
+        private long expenseCount() {
+            if (expectedCount > NORMAL_POISSON_MEAN) {
+                return Math.max(0, Math.round(expectedCount + Math.sqrt(expectedCount) * random.nextGaussian()));
+            }
+            // Knuth's method: multiply uniform draws until the product falls below e^-mean
+            double threshold = Math.exp(-expectedCount);
+            double product = random.nextDouble();
+            long count = 0;
+            while (product > threshold) {
+                count++;
+                product *= random.nextDouble();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * The simulated outcome of a budget at the end of its period.
+     */
+    public static class Forecast {
+        private final LocalDate day;
+        private final double overLimitProbability;
+        private final long medianCents;
+        private final long highCents;
+
+        Forecast(LocalDate day, double overLimitProbability, long medianCents, long highCents) {
+            this.day = day;
+            this.overLimitProbability = overLimitProbability;
+            this.medianCents = medianCents;
+            this.highCents = highCents;
+        }
+
+        /**
+         * Gets the probability that the budget ends over its limit.
+         * @return the share of simulated paths over the limit, from 0 to 1
+         */
+        public double getOverLimitProbability() {
+            return overLimitProbability;
+        }
+
+        /**
+         * Gets the median simulated spend at the end of the period.
+         * @return the median total, in cents of the budget's currency
+         */
+        public long getMedianCents() {
+            return medianCents;
+        }
+
+        /**
+         * Gets the spend that nine in ten simulated paths end at or below.
+         * @return the 90th percentile total, in cents of the budget's currency
+         */
+        public long getHighCents() {
+            return highCents;
+        }
+    }
+}
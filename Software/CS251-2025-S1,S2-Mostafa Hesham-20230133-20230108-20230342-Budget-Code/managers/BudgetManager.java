@@ -4,23 +4,49 @@ import entities.Budget;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import utils.Checkpoint;
+import utils.Filters;
 import utils.InputHelper;
+import utils.Metrics;
+import utils.Money;
+import utils.PagedView;
 import utils.SerializationHelper;
 import utils.Validators;
 
 /**
  * Manages budget records by allowing users to create and view budgets.
  * Provides a menu-driven interface for user interaction.
+ * Budgets are few and rarely added, so they are kept in a copy-on-write list
+ * that readers on other threads can iterate without locking.
+ * Budgets that have not ended are shown with a {@link BudgetForecaster forecast}
+ * of how likely they are to go over their limit.
  */
 public class BudgetManager implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final String BUDGETS_FILE = "budgets.ser";
     private List<Budget> budgets;
+    private final String file;
+    private final Checkpoint checkpoint;
+    private final BudgetTracker tracker;
+    private final BudgetForecaster forecaster;
     private final InputHelper input = new InputHelper();
 
-    public BudgetManager() {
+    /**
+     * Creates the manager for one user's data partition and loads its budgets.
+     * @param directory the partition prefix of the logged-in user
+     * @param expenseManager the same user's expenses, which budgets are tracked against
+     */
+    public BudgetManager(String directory, ExpenseManager expenseManager) {
+        file = directory + BUDGETS_FILE;
+        checkpoint = new Checkpoint(file, () -> new ArrayList<>(budgets));
+        tracker = new BudgetTracker(expenseManager);
+        forecaster = new BudgetForecaster(expenseManager, tracker);
         loadBudgets();
+        Metrics.gauge(directory + "budgets", budgets::size);
     }
 
     /**
@@ -28,15 +54,17 @@ public class BudgetManager implements Serializable {
      */
     @SuppressWarnings("unchecked")
     private void loadBudgets() {
-        Object loaded = SerializationHelper.loadObject(BUDGETS_FILE);
-        budgets = (loaded != null) ? (List<Budget>) loaded : new ArrayList<>();
+        Object loaded = SerializationHelper.loadObject(file);
+        budgets = new CopyOnWriteArrayList<>((loaded != null) ? (List<Budget>) loaded : new ArrayList<>());
+        budgets.forEach(tracker::track);
     }
 
     /**
-     * Saves budgets to the serialized file.
+     * Saves budgets to the serialized file if they changed since the last save.
+     * @return true if the file is up to date, false if saving failed
      */
-    private void saveBudgets() {
-        SerializationHelper.saveObject(budgets, BUDGETS_FILE);
+    public boolean checkpoint() {
+        return checkpoint.flush();
     }
 
     /**
@@ -56,6 +84,7 @@ public class BudgetManager implements Serializable {
                     displayBudgets();
                     break;
                 case "3":
+                    checkpoint();
                     return;
                 default:
                     System.out.println("Invalid choice");
@@ -69,7 +98,8 @@ public class BudgetManager implements Serializable {
      */
     private void createBudget() {
         String category = input.getNonEmpty("Category: ");
-        double limit = input.getPositiveDouble("Limit: $");
+        long limit = input.getPositiveAmount("Limit: ");
+        String currency = input.getCurrency();
         LocalDate start = input.getFutureDate("Start Date (YYYY-MM-DD): ");
         LocalDate end = input.getDateAfter("End Date (YYYY-MM-DD): ", start);
 
@@ -77,13 +107,49 @@ public class BudgetManager implements Serializable {
             System.out.println("End date must be after start date!");
             return;
         }
-        budgets.add(new Budget(category, limit, start, end));
-        saveBudgets();
+        addBudget(Budget.ofCents(category, limit, start, end).inCurrency(currency));
         System.out.println("Budget created!");
     }
 
     /**
-     * Displays all budget records in the list.
+     * Adds a budget without prompting and starts tracking its spending.
+     * @param budget the budget to add
+     */
+    public void addBudget(Budget budget) {
+        budgets.add(budget);
+        tracker.track(budget);
+        checkpoint.markDirty();
+    }
+
+    /**
+     * Gets every budget in the order they were created.
+     * @return a read-only view of the budgets
+     */
+    public List<Budget> getBudgets() {
+        return Collections.unmodifiableList(budgets);
+    }
+
+    /**
+     * Gets the amount spent against a budget so far.
+     * @param budget one of this manager's budgets
+     * @return the amount spent within the budget's category and period, in cents of the budget's currency
+     */
+    public long getSpentCents(Budget budget) {
+        return tracker.getSpentCents(budget);
+    }
+
+    /**
+     * Forecasts whether a budget will end over its limit.
+     * @param budget one of this manager's budgets
+     * @return the forecast, or null if the budget has ended
+     */
+    public BudgetForecaster.Forecast getForecast(Budget budget) {
+        return forecaster.forecast(budget);
+    }
+
+    /**
+     * Displays the budgets matching the user's filters with how much of each has been used,
+     * one page at a time.
      * If no budgets are found, a message is displayed to the user.
      */
     private void displayBudgets() {
@@ -91,6 +157,31 @@ public class BudgetManager implements Serializable {
             System.out.println("No budgets found!");
             return;
         }
-        budgets.forEach(System.out::println);
+        System.out.println("Filters (press Enter to skip):");
+        String category = input.getOptional("Category: ");
+        LocalDate activeOn = input.getOptionalDate("Active on (YYYY-MM-DD): ");
+        Double min = input.getOptionalDouble("Min limit: $");
+        Double max = input.getOptionalDouble("Max limit: $");
+        Predicate<Budget> filter = Filters.text(Budget::getCategory, category)
+                .and(budget -> activeOn == null
+                        || (!activeOn.isBefore(budget.getStartDate()) && !activeOn.isAfter(budget.getEndDate())))
+                .and(Filters.amountRange(Budget::getLimit, min, max));
+        new PagedView<>(budgets, filter, this::formatUsage).browse(input);
+    }
+
+    /**
+     * Formats a budget together with how much of it has been used and, until it ends,
+     * its forecast.
+     */
+    private String formatUsage(Budget budget) {
+        long spent = tracker.getSpentCents(budget);
+        String currency = budget.getCurrency();
+        String usage = String.format("%s | spent %s, remaining %s, %.1f%% used", budget, Money.format(spent, currency),
+                Money.format(budget.getLimitCents() - spent, currency), spent * 100.0 / budget.getLimitCents());
+        BudgetForecaster.Forecast forecast = forecaster.forecast(budget);
+        if (forecast == null) return usage;
+        return usage + String.format(" | likely to end at %s (up to %s), %.0f%% chance of going over",
+                Money.format(forecast.getMedianCents(), currency), Money.format(forecast.getHighCents(), currency),
+                forecast.getOverLimitProbability() * 100);
     }
 }
\ No newline at end of file
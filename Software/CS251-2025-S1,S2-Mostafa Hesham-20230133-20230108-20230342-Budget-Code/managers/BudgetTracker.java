@@ -0,0 +1,138 @@
+package managers;
+
+import entities.Budget;
+import entities.Expense;
+import entities.RecurringEntry;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import utils.CurrencyTotal;
+import utils.ExchangeRates;
+import utils.StringDictionary;
+
+/**
+ * Keeps a running total of what has been spent against each budget.
+ * <p>
+ * A budget's total is computed once from the per-category prefix sums and the
+ * recurring expenses when it starts being tracked. After that the tracker listens to
+ * new expenses and adds each one to the budgets of its category whose period contains
+ * the expense date (or, for a recurring expense, each of its occurrences that does), so
+ * utilization is always current without rescanning the expense history.
+ * </p>
+ * <p>
+ * Expenses can arrive on several threads at once, so each running total is a
+ * {@link LongAdder} of cents that concurrent inserts add to without contending.
+ * </p>
+ * <p>
+ * Totals are kept in the base currency: an expense in another currency is
+ * converted at the rate of its own date as it arrives. The total is converted
+ * into the budget's currency when it is read, at the rate of the last day of the
+ * budget or of today, whichever comes first.
+ * </p>
+ */
+public class BudgetTracker {
+    private final ExpenseManager expenseManager;
+    // Keyed by name, so a budget can wait for a category that has no dictionary id yet
+    private final Map<String, List<Usage>> byCategory = new ConcurrentHashMap<>();
+    // Budget does not override equals, so this is keyed by identity
+    private final Map<Budget, Usage> usages = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a tracker that follows the expenses of one manager.
+     * @param expenseManager the expenses to track budgets against
+     */
+    public BudgetTracker(ExpenseManager expenseManager) {
+        this.expenseManager = expenseManager;
+        expenseManager.addListener(this::onExpenseAdded);
+        expenseManager.addRecurringListener(this::onRecurringAdded);
+    }
+
+    /**
+     * Starts tracking a budget, computing what has already been spent in its period.
+     * @param budget the budget to track
+     */
+    public void track(Budget budget) {
+        Usage usage = new Usage(budget);
+        // An expense added meanwhile is counted exactly once: in the total or by the listener
+        expenseManager.runBetweenInserts(() -> {
+            // A category without an id has no expenses yet
+            int categoryId = StringDictionary.shared().find(budget.getCategory());
+            if (categoryId >= 0) {
+                usage.spent.add(expenseManager.getCategoryTotalCents(categoryId, budget.getStartDate(), budget.getEndDate()));
+            }
+            byCategory.computeIfAbsent(budget.getCategory(), name -> new CopyOnWriteArrayList<>()).add(usage);
+        });
+        usages.put(budget, usage);
+    }
+
+    /**
+     * Gets the amount spent against a budget so far.
+     * @param budget a tracked budget
+     * @return the amount spent within the budget's category and period, in cents of the budget's currency
+     */
+    public long getSpentCents(Budget budget) {
+        Usage usage = usages.get(budget);
+        if (usage == null) return 0;
+        LocalDate today = LocalDate.now();
+        LocalDate rateDate = budget.getEndDate().isBefore(today) ? budget.getEndDate() : today;
+        int currencyId = ExchangeRates.shared().currencyId(budget.getCurrency());
+        return ExchangeRates.shared().fromBase(usage.spent.sum(), currencyId, (int) rateDate.toEpochDay());
+    }
+
+    /**
+     * Gets the amount spent against a budget so far, before it is converted into the budget's currency.
+     * @param budget a tracked budget
+     * @return the amount spent within the budget's category and period, in cents of the base currency
+     */
+    long getSpentBaseCents(Budget budget) {
+        Usage usage = usages.get(budget);
+        return (usage != null) ? usage.spent.sum() : 0;
+    }
+
+    /**
+     * Adds a new expense to every budget of its category whose period contains it.
+     */
+    private void onExpenseAdded(Expense expense) {
+        List<Usage> candidates = byCategory.get(expense.getCategory());
+        if (candidates == null) return;
+        for (Usage usage : candidates) {
+            Budget budget = usage.budget;
+            if (!expense.getDate().isBefore(budget.getStartDate()) && !expense.getDate().isAfter(budget.getEndDate())) {
+                usage.spent.add(ExchangeRates.shared().toBase(expense.getAmountCents(), expense.getCurrencyId(),
+                        (int) expense.getDate().toEpochDay()));
+            }
+        }
+    }
+
+    /**
+     * Adds the occurrences of a new recurring expense to every budget of its category
+     * that they fall within.
+     */
+    private void onRecurringAdded(RecurringEntry<Expense> entry) {
+        Expense template = entry.getTemplate();
+        List<Usage> candidates = byCategory.get(template.getCategory());
+        if (candidates == null) return;
+        for (Usage usage : candidates) {
+            Budget budget = usage.budget;
+            CurrencyTotal occurrences = new CurrencyTotal();
+            occurrences.addOccurrences(entry.getRule(), template.getCurrencyId(), template.getAmountCents(),
+                    budget.getStartDate(), budget.getEndDate());
+            usage.spent.add(occurrences.toBase());
+        }
+    }
+
+    /**
+     * Running total for one budget.
+     */
+    private static class Usage {
+        final Budget budget;
+        final LongAdder spent = new LongAdder();
+
+        Usage(Budget budget) {
+            this.budget = budget;
+        }
+    }
+}
@@ -1,41 +1,205 @@
 package managers;
 
 import entities.Expense;
+import entities.RecurrenceRule;
+import entities.RecurringEntry;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import utils.Checkpoint;
+import utils.ColumnStore;
+import utils.ConcurrentStore;
+import utils.CurrencyTotal;
+import utils.DateIndex;
+import utils.ExchangeRates;
+import utils.FenwickTree;
+import utils.Filters;
 import utils.InputHelper;
+import utils.Metrics;
+import utils.Money;
+import utils.PagedView;
+import utils.RecordLog;
+import utils.RecurrenceView;
 import utils.SerializationHelper;
+import utils.StringDictionary;
+import utils.TextIndex;
+import utils.Validators;
 
 /**
  * Manages expense records by allowing users to add and view expense entries.
  * Provides a menu-driven interface for user interaction.
+ * <p>
+ * The manager is safe to use from several threads. Expenses are kept in a
+ * {@link ConcurrentStore}, so readers work on snapshots and never block; writers
+ * take turns only for the part of an insert that touches the files.
+ * </p>
  */
 public class ExpenseManager implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final String EXPENSES_FILE = "expenses.ser";
-    private List<Expense> expenses;
+    private static final String EXPENSES_LOG = "expenses.log";
+    private static final String RECURRING_FILE = "recurring-expenses.ser";
+    private final RecordLog<Expense> expensesLog;
+    private final ColumnStore expensesColumns;
+    private final DateIndex<Expense> expensesByDate = new DateIndex<>(Expense::getDate);
+    private final TextIndex expensesByText = new TextIndex();
+    private final AnomalyDetector anomalyDetector = new AnomalyDetector();
+    private final Map<Integer, FenwickTree> spendByCategory = new ConcurrentHashMap<>();
+    // Spend in other currencies, by category and then currency, converted when it is summed
+    private final Map<Integer, Map<Integer, FenwickTree>> foreignSpendByCategory = new ConcurrentHashMap<>();
+    private final List<Consumer<Expense>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<RecurringEntry<Expense>>> recurringListeners = new CopyOnWriteArrayList<>();
+    // Held shared while new spend is added to the category totals and announced to the
+    // listeners, and exclusively by readers that must see each expense exactly once
+    private final ReadWriteLock spendLock = new ReentrantReadWriteLock();
+    private final ConcurrentStore<Expense> expenses = new ConcurrentStore<>();
+    private List<RecurringEntry<Expense>> recurring;
+    private final String recurringFile;
+    private final Checkpoint recurringCheckpoint;
     private final InputHelper input = new InputHelper();
 
-    public ExpenseManager() {
+    /**
+     * Creates the manager for one user's data partition and loads its expenses.
+     * @param directory the partition prefix of the logged-in user
+     */
+    public ExpenseManager(String directory) {
+        expensesLog = new RecordLog<>(directory + EXPENSES_FILE, directory + EXPENSES_LOG);
+        expensesColumns = new ColumnStore(directory + "expenses");
+        recurringFile = directory + RECURRING_FILE;
+        recurringCheckpoint = new Checkpoint(recurringFile, () -> new ArrayList<>(recurring));
         loadExpenses();
+        loadRecurring();
+        Metrics.gauge(directory + "expenses", expenses::size);
     }
 
     /**
-     * Loads expenses from the serialized file.
+     * Loads expenses from the snapshot file and replays the append-only log, then
+     * builds the date and text indexes and the statistics anomalies are checked
+     * against. The column store is rebuilt if it is out of step with the log.
      */
-    @SuppressWarnings("unchecked")
     private void loadExpenses() {
-        Object loaded = SerializationHelper.loadObject(EXPENSES_FILE);
-        expenses = (loaded != null) ? (List<Expense>) loaded : new ArrayList<>();
+        List<Expense> loaded = expensesLog.load();
+        // Earlier versions could log an expense without a date; it is dropped for good
+        if (loaded.removeIf(expense -> expense.getDate() == null)) expensesLog.compact(loaded);
+        expenses.addAll(loaded);
+        addToTextIndex(loaded, 0);
+        expensesByDate.addAll(loaded);
+        loaded.forEach(this::addToCategorySpend);
+        loaded.forEach(anomalyDetector::learn);
+        if (expensesColumns.size() != loaded.size()) {
+            expensesColumns.rebuild(loaded, Expense::getAmountCents, Expense::getCurrencyId, Expense::getDate, Expense::getCategoryId);
+        }
+    }
+
+    /**
+     * Loads the recurring expense templates from the serialized file.
+     */
+    @SuppressWarnings("unchecked")
+    private void loadRecurring() {
+        Object loaded = SerializationHelper.loadObject(recurringFile);
+        recurring = new CopyOnWriteArrayList<>((loaded != null) ? (List<RecurringEntry<Expense>>) loaded : new ArrayList<>());
+    }
+
+    /**
+     * Saves the recurring expense templates if they changed since the last save.
+     * Plain expenses need no checkpoint because each one is appended to the log as it is added.
+     * @return true if the file is up to date, false if saving failed
+     */
+    public boolean checkpoint() {
+        return recurringCheckpoint.flush();
+    }
+
+    /**
+     * Adds a batch of expense records, persisting the whole batch in a single write
+     * to the log and the column store, then checks each one for anomalies and
+     * notifies the listeners.
+     * The store and the files are updated together under the log's lock, so the
+     * order of the log always matches the order of the store. The whole batch is
+     * checked, and then written to the log, before any of it is added to the store,
+     * so a bad record or a failed write leaves both unchanged.
+     * @param batch the expense records to add
+     * @return the expenses of the batch that look unusual for their category
+     * @throws IllegalArgumentException if a record has no date, a date out of range or a non-positive amount
+     * @throws IllegalStateException if the batch could not be written to the log
+     */
+    public List<AnomalyDetector.Anomaly> addExpenses(List<Expense> batch) {
+        for (Expense expense : batch) {
+            if (expense.getDate() == null) throw new IllegalArgumentException("Expense has no date");
+            if (!Validators.validateDate(expense.getDate())) {
+                throw new IllegalArgumentException("Expense date must be between " + Validators.MIN_DATE + " and " + Validators.MAX_DATE);
+            }
+            if (!Validators.validateTransaction(expense.getAmountCents())) {
+                throw new IllegalArgumentException("Expense amount must be positive");
+            }
+        }
+        synchronized (expensesLog) {
+            if (!expensesLog.appendAll(batch, expenses.snapshotWith(batch))) {
+                throw new IllegalStateException("Could not save expenses");
+            }
+            int first = expenses.size();
+            expenses.addAll(batch);
+            expensesColumns.appendAll(batch, Expense::getAmountCents, Expense::getCurrencyId, Expense::getDate, Expense::getCategoryId);
+            addToTextIndex(batch, first);
+        }
+        Metrics.add("expenses.inserted", batch.size());
+        expensesByDate.addAll(batch);
+        List<AnomalyDetector.Anomaly> anomalies = new ArrayList<>(0);
+        spendLock.readLock().lock();
+        try {
+            batch.forEach(this::addToCategorySpend);
+            for (Expense expense : batch) {
+                AnomalyDetector.Anomaly anomaly = anomalyDetector.check(expense);
+                if (anomaly != null) anomalies.add(anomaly);
+                listeners.forEach(listener -> listener.accept(expense));
+            }
+        } finally {
+            spendLock.readLock().unlock();
+        }
+        if (!anomalies.isEmpty()) Metrics.add("expenses.anomalies", anomalies.size());
+        return anomalies;
+    }
+
+    /**
+     * Registers a listener that is notified of every expense added from now on.
+     * @param listener called with each new expense after it is stored
+     */
+    public void addListener(Consumer<Expense> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Runs an action while no expense or recurring expense is being added to the
+     * category totals or announced to the listeners. Inserts wait for the action, so
+     * an action that registers a listener and reads a total sees each expense in
+     * exactly one of the two.
+     * @param action the action to run
+     */
+    public void runBetweenInserts(Runnable action) {
+        spendLock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            spendLock.writeLock().unlock();
+        }
     }
 
     /**
-     * Saves expenses to the serialized file.
+     * Registers a listener that is notified of every recurring expense added from now on.
+     * @param listener called with each new recurring expense after it is stored
      */
-    private void saveExpenses() {
-        SerializationHelper.saveObject(expenses, EXPENSES_FILE);
+    public void addRecurringListener(Consumer<RecurringEntry<Expense>> listener) {
+        recurringListeners.add(listener);
     }
 
     /**
@@ -45,7 +209,7 @@ public class ExpenseManager implements Serializable {
     public void showMenu() {
         while (true) {
             System.out.println("\n=== EXPENSE MANAGEMENT ===");
-            System.out.println("1. Add Expense\n2. View History\n3. Back");
+            System.out.println("1. Add Expense\n2. View History\n3. View Totals\n4. View Period\n5. Category Spend\n6. Add Recurring\n7. View Recurring\n8. Search\n9. Back");
 
             switch (input.getNonEmpty("Choose: ")) {
                 case "1":
@@ -55,6 +219,25 @@ public class ExpenseManager implements Serializable {
                     displayExpenses();
                     break;
                 case "3":
+                    displayTotals();
+                    break;
+                case "4":
+                    displayPeriod();
+                    break;
+                case "5":
+                    displayCategorySpend();
+                    break;
+                case "6":
+                    addRecurring();
+                    break;
+                case "7":
+                    displayRecurring();
+                    break;
+                case "8":
+                    displaySearch();
+                    break;
+                case "9":
+                    checkpoint();
                     return;
                 default:
                     System.out.println("Invalid choice");
@@ -62,29 +245,293 @@ public class ExpenseManager implements Serializable {
         }
     }
 
+    /**
+     * Indexes the category and payment method of expenses stored from a position on.
+     */
+    private void addToTextIndex(List<Expense> stored, int first) {
+        for (int i = 0; i < stored.size(); i++) {
+            Expense expense = stored.get(i);
+            expensesByText.add(first + i, expense.getCategory(), expense.getPaymentMethod());
+        }
+    }
+
+    /**
+     * Finds the stored expenses whose category or payment method contains a word
+     * starting with each word of a query, e.g. "ub" finds expenses in "Uber Eats".
+     * Occurrences of recurring expenses are not searched.
+     * @param query the words to look for
+     * @return the matching expense records in the order they were added
+     */
+    public List<Expense> searchExpenses(String query) {
+        List<Expense> stored = expenses.snapshot();
+        int[] positions = expensesByText.search(query, true);
+        List<Expense> matches = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            // The index may already hold expenses added after the snapshot was taken
+            if (position < stored.size()) matches.add(stored.get(position));
+        }
+        return matches;
+    }
+
+    /**
+     * Adds an expense to the prefix sums of its category and currency.
+     */
+    private void addToCategorySpend(Expense expense) {
+        Map<Integer, FenwickTree> byCurrency = spendByCategory;
+        int key = expense.getCategoryId();
+        if (expense.getCurrencyId() != ExchangeRates.shared().getBaseCurrencyId()) {
+            byCurrency = foreignSpendByCategory.computeIfAbsent(expense.getCategoryId(), id -> new ConcurrentHashMap<>());
+            key = expense.getCurrencyId();
+        }
+        byCurrency.computeIfAbsent(key, id -> new FenwickTree())
+                .add((int) expense.getDate().toEpochDay(), expense.getAmountCents());
+    }
+
+    /**
+     * Gets the total spent in a category over a period, including the occurrences of
+     * recurring expenses. Stored expenses in the base currency are summed in
+     * logarithmic time and each recurring expense in constant time; spend in other
+     * currencies is converted once per currency and day that has any.
+     * @param categoryId the dictionary id of the category
+     * @param from the first day of the period (inclusive)
+     * @param to the last day of the period (inclusive)
+     * @return the amount spent in the category within the period, in cents of the base currency
+     */
+    public long getCategoryTotalCents(int categoryId, LocalDate from, LocalDate to) {
+        int first = (int) from.toEpochDay();
+        int last = (int) to.toEpochDay();
+        FenwickTree spend = spendByCategory.get(categoryId);
+        CurrencyTotal total = new CurrencyTotal();
+        total.add(ExchangeRates.shared().getBaseCurrencyId(), first, (spend != null) ? spend.sum(first, last) : 0);
+        Map<Integer, FenwickTree> foreign = foreignSpendByCategory.get(categoryId);
+        if (foreign != null) {
+            foreign.forEach((currencyId, tree) ->
+                    tree.forEachDay(first, last, (day, cents) -> total.add(currencyId, day, cents)));
+        }
+        for (RecurringEntry<Expense> entry : recurring) {
+            Expense template = entry.getTemplate();
+            if (template.getCategoryId() == categoryId) {
+                total.addOccurrences(entry.getRule(), template.getCurrencyId(), template.getAmountCents(), from, to);
+            }
+        }
+        return total.toBase();
+    }
+
     /**
      * Prompts the user to add a new expense record by entering the amount, category, payment method, and date.
      * The expense record is then added to the list of expenses.
      */
     public void addExpense() {
-        double amount = input.getPositiveDouble("Amount: $");
+        long amount = input.getPositiveAmount("Amount: ");
+        String currency = input.getCurrency();
         String category = input.getNonEmpty("Category: ");
         String method = input.getNonEmpty("Payment Method: ");
         LocalDate date = input.getDate("Date (YYYY-MM-DD): ");
-        expenses.add(new Expense(amount, category, method, date));
-        saveExpenses();
-        System.out.println("Expense recorded!");
+        try {
+            AnomalyDetector.Anomaly anomaly = addExpense(Expense.ofCents(amount, category, method, date).inCurrency(currency));
+            System.out.println("Expense recorded!");
+            if (anomaly != null) System.out.println("Unusual expense: " + anomaly.getReason());
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage() + "!");
+        }
     }
 
     /**
-     * Displays all expense records in the list.
+     * Adds an expense record without prompting.
+     * @param expense the expense to add
+     * @return why the expense looks unusual for its category, or null if it does not
+     */
+    public AnomalyDetector.Anomaly addExpense(Expense expense) {
+        List<AnomalyDetector.Anomaly> anomalies = addExpenses(Collections.singletonList(expense));
+        return anomalies.isEmpty() ? null : anomalies.get(0);
+    }
+
+    /**
+     * Prompts the user to add a recurring expense by entering the amount, category, payment method
+     * and how often it repeats. Only the template is stored; its occurrences are generated when needed.
+     */
+    public void addRecurring() {
+        long amount = input.getPositiveAmount("Amount: ");
+        String currency = input.getCurrency();
+        String category = input.getNonEmpty("Category: ");
+        String method = input.getNonEmpty("Payment Method: ");
+        RecurrenceRule rule = input.getRecurrenceRule();
+        Expense template = Expense.ofCents(amount, category, method, rule.getStart()).inCurrency(currency);
+        RecurringEntry<Expense> entry = new RecurringEntry<>(template, rule);
+        spendLock.readLock().lock();
+        try {
+            recurring.add(entry);
+            recurringListeners.forEach(listener -> listener.accept(entry));
+        } finally {
+            spendLock.readLock().unlock();
+        }
+        recurringCheckpoint.markDirty();
+        System.out.println("Recurring expense recorded!");
+    }
+
+    /**
+     * Displays the recurring expense templates.
+     * If none are found, a message is displayed to the user.
+     */
+    private void displayRecurring() {
+        if (recurring.isEmpty()) {
+            System.out.println("No recurring expenses found!");
+            return;
+        }
+        new PagedView<>(recurring, entry -> true, RecurringEntry::toString).browse(input);
+    }
+
+    /**
+     * Displays the expense records matching the user's filters, one page at a time.
      * If no expense records are found, a message is displayed to the user.
      */
     private void displayExpenses() {
-        if (expenses.isEmpty()) {
+        if (expenses.size() == 0 && recurring.isEmpty()) {
             System.out.println("No expenses found!");
             return;
         }
-        expenses.forEach(System.out::println);
+        System.out.println("Filters (press Enter to skip):");
+        LocalDate from = input.getOptionalDate("From (YYYY-MM-DD): ");
+        LocalDate to = input.getOptionalDate("To (YYYY-MM-DD): ");
+        String category = input.getOptional("Category: ");
+        Double min = input.getOptionalDouble("Min amount: $");
+        Double max = input.getOptionalDouble("Max amount: $");
+        Predicate<Expense> filter = Filters.dateRange(Expense::getDate, from, to)
+                .and(Filters.dictionaryText(Expense::getCategoryId, category))
+                .and(Filters.amountRange(Expense::getAmount, min, max));
+        List<Expense> history = getExpensesThrough((to != null) ? to : LocalDate.now());
+        new PagedView<>(history, filter, Expense::toString).browse(input);
+    }
+
+    /**
+     * Prompts for search words and displays the expenses whose category or payment
+     * method matches them, one page at a time.
+     */
+    private void displaySearch() {
+        String query = input.getNonEmpty("Search category or payment method: ");
+        long start = System.nanoTime();
+        List<Expense> matches = searchExpenses(query);
+        if (matches.isEmpty()) {
+            System.out.println("No matching expenses!");
+            return;
+        }
+        System.out.printf("%d matches in %.2f ms%n", matches.size(), (System.nanoTime() - start) / 1e6);
+        new PagedView<Expense>(matches, expense -> true, Expense::toString).browse(input);
+    }
+
+    /**
+     * Gets every expense record, including the occurrences of recurring expenses up to today.
+     * @return a read-only view of the expense records
+     */
+    public List<Expense> getExpenses() {
+        return getExpensesThrough(LocalDate.now());
+    }
+
+    /**
+     * Gets the stored expense records in the order they were added, followed by the
+     * occurrences of recurring expenses up to a date. Occurrences are created as they are read.
+     * @param to the last day to include occurrences for (inclusive)
+     * @return a read-only view of the expense records
+     */
+    public List<Expense> getExpensesThrough(LocalDate to) {
+        return new RecurrenceView<>(expenses.snapshot(), recurring, null, to, Expense::onDate);
+    }
+
+    /**
+     * Gets the stored expense records of one category dated within a period, using
+     * the date index, without the occurrences of recurring expenses.
+     * @param categoryId the dictionary id of the category
+     * @param from the first day of the period (inclusive)
+     * @param to the last day of the period (inclusive)
+     * @return the category's expense records in date order
+     */
+    public List<Expense> getStoredExpensesBetween(int categoryId, LocalDate from, LocalDate to) {
+        List<Expense> matching = new ArrayList<>();
+        for (Expense expense : expensesByDate.between(from, to)) {
+            if (expense.getCategoryId() == categoryId) matching.add(expense);
+        }
+        return matching;
+    }
+
+    /**
+     * Gets the expense records dated within a period, using the date index, together
+     * with the occurrences of recurring expenses in that period.
+     * @param from the first day of the period (inclusive)
+     * @param to the last day of the period (inclusive)
+     * @return the matching expense records in date order
+     */
+    public List<Expense> getExpensesBetween(LocalDate from, LocalDate to) {
+        List<Expense> stored = expensesByDate.between(from, to);
+        if (recurring.isEmpty()) return stored;
+        List<Expense> period = new ArrayList<>(new RecurrenceView<>(stored, recurring, from, to, Expense::onDate));
+        period.sort(Comparator.comparing(Expense::getDate));
+        return period;
+    }
+
+    /**
+     * Prompts for a period and displays the expense records within it along with their total.
+     */
+    private void displayPeriod() {
+        LocalDate from = input.getDate("From (YYYY-MM-DD): ");
+        LocalDate to = input.getDate("To (YYYY-MM-DD): ");
+        List<Expense> period = getExpensesBetween(from, to);
+        if (period.isEmpty()) {
+            System.out.println("No expenses found!");
+            return;
+        }
+        new PagedView<Expense>(period, expense -> true, Expense::toString).browse(input);
+        CurrencyTotal spent = new CurrencyTotal();
+        for (Expense expense : period) {
+            spent.add(expense.getCurrencyId(), (int) expense.getDate().toEpochDay(), expense.getAmountCents());
+        }
+        System.out.printf("Spent in period: $%s%n", Money.format(spent.toBase()));
+    }
+
+    /**
+     * Prompts for a category and a period and displays how much was spent in that category.
+     */
+    private void displayCategorySpend() {
+        String category = input.getNonEmpty("Category: ");
+        LocalDate from = input.getDate("From (YYYY-MM-DD): ");
+        LocalDate to = input.getDate("To (YYYY-MM-DD): ");
+        int categoryId = StringDictionary.shared().find(category);
+        long total = (categoryId >= 0) ? getCategoryTotalCents(categoryId, from, to) : 0;
+        System.out.printf("Spent on %s from %s to %s: $%s%n", category, from, to, Money.format(total));
+    }
+
+    /**
+     * Displays the overall total, the total for the current month and the total per category.
+     * Totals of stored expenses are computed by scanning the column store rather than the
+     * loaded records; recurring expenses add their occurrences up to today.
+     */
+    private void displayTotals() {
+        if (expensesColumns.size() == 0 && recurring.isEmpty()) {
+            System.out.println("No expenses found!");
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        LocalDate monthStart = today.withDayOfMonth(1);
+        long total = expensesColumns.total();
+        long month = expensesColumns.totalBetween(monthStart, today);
+        Map<String, Long> byCategory = new LinkedHashMap<>(expensesColumns.totalsByCategory());
+        for (RecurringEntry<Expense> entry : recurring) {
+            long spent = recurringTotal(entry, entry.getRule().getStart(), today);
+            total += spent;
+            month += recurringTotal(entry, monthStart, today);
+            if (spent > 0) byCategory.merge(entry.getTemplate().getCategory(), spent, Long::sum);
+        }
+        System.out.printf("Total spent: $%s%n", Money.format(total));
+        System.out.printf("Spent this month: $%s%n", Money.format(month));
+        byCategory.forEach((name, sum) -> System.out.printf("  %s: $%s%n", name, Money.format(sum)));
+    }
+
+    /**
+     * Gets the total of the occurrences of a recurring expense within a period, in the base currency.
+     */
+    private static long recurringTotal(RecurringEntry<Expense> entry, LocalDate from, LocalDate to) {
+        Expense template = entry.getTemplate();
+        CurrencyTotal total = new CurrencyTotal();
+        total.addOccurrences(entry.getRule(), template.getCurrencyId(), template.getAmountCents(), from, to);
+        return total.toBase();
     }
-}
\ No newline at end of file
+}
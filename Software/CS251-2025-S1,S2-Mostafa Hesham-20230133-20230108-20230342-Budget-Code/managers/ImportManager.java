@@ -0,0 +1,441 @@
+package managers;
+
+import entities.Expense;
+import entities.Income;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import utils.InputHelper;
+import utils.Money;
+import utils.Validators;
+
+/**
+ * Imports bank statements (CSV or OFX) into the expense and income managers.
+ * <p>
+ * The file is streamed in chunks of rows. Chunks are parsed and validated in
+ * parallel, then committed in file order, one persistence write per chunk.
+ * Only a bounded number of chunks is in flight at once, so memory use does
+ * not depend on the size of the statement.
+ * </p>
+ * <p>
+ * CSV rows are {@code date,amount,description[,payment method]} with ISO dates.
+ * Negative amounts become expenses (categorized by description) and positive
+ * amounts become incomes (sourced by description). A header row is skipped.
+ * </p>
+ */
+public class ImportManager {
+    private static final int BATCH_SIZE = 10_000;
+    private static final int MAX_REPORTED_ERRORS = 10;
+    private static final String DEFAULT_METHOD = "Bank";
+
+    private final ExpenseManager expenseManager;
+    private final IncomeManager incomeManager;
+    private final InputHelper input = new InputHelper();
+
+    /**
+     * Creates an import manager that feeds the given managers.
+     * @param expenseManager receives imported expenses
+     * @param incomeManager receives imported incomes
+     */
+    public ImportManager(ExpenseManager expenseManager, IncomeManager incomeManager) {
+        this.expenseManager = expenseManager;
+        this.incomeManager = incomeManager;
+    }
+
+    /**
+     * Displays the import menu and handles user input.
+     */
+    public void showMenu() {
+        while (true) {
+            System.out.println("\n=== IMPORT STATEMENT ===");
+            System.out.println("1. Import CSV/OFX File\n2. Back");
+
+            switch (input.getNonEmpty("Choose: ")) {
+                case "1":
+                    Result result = importFile(Paths.get(input.getNonEmpty("File path: ")));
+                    if (result != null) result.print();
+                    break;
+                case "2":
+                    return;
+                default:
+                    System.out.println("Invalid choice");
+            }
+        }
+    }
+
+    /**
+     * Imports a statement file. Files ending in .ofx or .qfx are read as OFX, anything else as CSV.
+     * @param path the statement file
+     * @return the import summary, or null if the file could not be read
+     */
+    public Result importFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        boolean ofx = name.endsWith(".ofx") || name.endsWith(".qfx");
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Deque<Future<Batch>> inFlight = new ArrayDeque<>();
+        Result result = new Result();
+        long start = System.nanoTime();
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            ChunkReader chunks = new ChunkReader(reader, ofx);
+            Chunk chunk;
+            while ((chunk = chunks.next()) != null) {
+                Chunk toParse = chunk;
+                inFlight.add(pool.submit(() -> parse(toParse, ofx)));
+                if (inFlight.size() >= threads * 2) {
+                    commit(inFlight.poll().get(), result);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                commit(inFlight.poll().get(), result);
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read file: " + e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Import interrupted");
+        } catch (ExecutionException e) {
+            System.out.println("Import failed: " + e.getCause().getMessage());
+        } catch (IllegalStateException e) {
+            // A failed write leaves the rows committed so far in place; the rest are not imported
+            System.out.println("Import stopped: " + e.getMessage() + " after " + result.expenses
+                    + " expense(s) and " + result.incomes + " income(s) were committed");
+        } finally {
+            pool.shutdownNow();
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Hands one parsed chunk to the managers, one write per manager. The counts
+     * are updated after each write, so they match what is saved if the next one fails.
+     * @throws IllegalStateException if the expenses or incomes could not be saved
+     */
+    private void commit(Batch batch, Result result) {
+        List<AnomalyDetector.Anomaly> anomalies = expenseManager.addExpenses(batch.expenses);
+        result.expenses += batch.expenses.size();
+        result.flagged += anomalies.size();
+        for (AnomalyDetector.Anomaly anomaly : anomalies) {
+            if (result.anomalies.size() >= MAX_REPORTED_ERRORS) break;
+            result.anomalies.add(anomaly.toString());
+        }
+        incomeManager.addIncomes(batch.incomes);
+        result.incomes += batch.incomes.size();
+        result.rejected += batch.errors.size();
+        for (String error : batch.errors) {
+            if (result.errors.size() >= MAX_REPORTED_ERRORS) break;
+            result.errors.add(error);
+        }
+    }
+
+    /**
+     * Parses and validates every record of a chunk.
+     */
+    private static Batch parse(Chunk chunk, boolean ofx) {
+        Batch batch = new Batch();
+        for (int i = 0; i < chunk.records.size(); i++) {
+            int line = chunk.lines[i];
+            try {
+                Row row = ofx ? parseOfx(chunk.records.get(i)) : parseCsv(chunk.records.get(i), line == 1);
+                if (row == null) continue; // Header or blank line
+                if (!Validators.validateTransaction(Math.abs(row.amount))) {
+                    batch.errors.add("Line " + line + ": amount must not be zero");
+                } else if (!Validators.validateDate(row.date)) {
+                    batch.errors.add("Line " + line + ": date must be between " + Validators.MIN_DATE + " and " + Validators.MAX_DATE);
+                } else if (!Validators.isValidString(row.description, 1, 100)) {
+                    batch.errors.add("Line " + line + ": description must be 1-100 characters");
+                } else if (row.amount < 0) {
+                    batch.expenses.add(Expense.ofCents(-row.amount, row.description, row.method, row.date));
+                } else {
+                    batch.incomes.add(Income.ofCents(row.amount, row.description, row.date));
+                }
+            } catch (NumberFormatException e) {
+                batch.errors.add("Line " + line + ": invalid amount");
+            } catch (DateTimeException e) {
+                batch.errors.add("Line " + line + ": invalid date");
+            } catch (IllegalArgumentException e) {
+                batch.errors.add("Line " + line + ": " + e.getMessage());
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Parses one CSV row.
+     * @param first whether this is the first line of the file, which may be a header
+     * @return the row, or null for a blank line or header row
+     */
+    private static Row parseCsv(String line, boolean first) {
+        if (line.isBlank()) return null;
+        List<String> fields = splitCsv(line);
+        if (fields.size() < 3) {
+            throw new IllegalArgumentException("expected date,amount,description[,method]");
+        }
+        String date = fields.get(0).trim();
+        if (first && !date.isEmpty() && !Character.isDigit(date.charAt(0))) return null; // Header
+        Row row = new Row();
+        row.date = parseIsoDate(date);
+        row.amount = parseAmount(fields.get(1));
+        row.description = fields.get(2).trim();
+        row.method = fields.size() > 3 && !fields.get(3).isBlank() ? fields.get(3).trim() : DEFAULT_METHOD;
+        return row;
+    }
+
+    /**
+     * Parses one OFX {@code <STMTTRN>} block.
+     */
+    private static Row parseOfx(String block) {
+        String posted = ofxField(block, "DTPOSTED");
+        String amount = ofxField(block, "TRNAMT");
+        if (posted == null || amount == null || posted.length() < 8) {
+            throw new IllegalArgumentException("transaction without DTPOSTED/TRNAMT");
+        }
+        Row row = new Row();
+        row.date = parseOfxDate(posted);
+        row.amount = parseAmount(amount);
+        String name = ofxField(block, "NAME");
+        row.description = name != null ? name : String.valueOf(ofxField(block, "MEMO"));
+        String type = ofxField(block, "TRNTYPE");
+        row.method = type != null ? type : DEFAULT_METHOD;
+        return row;
+    }
+
+    /**
+     * Reads the value of an OFX tag: the text after {@code <TAG>} up to the next tag or line end.
+     */
+    private static String ofxField(String block, String tag) {
+        int start = block.indexOf("<" + tag + ">");
+        if (start < 0) return null;
+        start += tag.length() + 2;
+        int end = start;
+        while (end < block.length() && block.charAt(end) != '<'
+                && block.charAt(end) != '\n' && block.charAt(end) != '\r') {
+            end++;
+        }
+        return block.substring(start, end).trim();
+    }
+
+    /**
+     * Parses a YYYY-MM-DD date, reading the digits directly in the common case.
+     */
+    private static LocalDate parseIsoDate(String text) {
+        if (text.length() == 10 && text.charAt(4) == '-' && text.charAt(7) == '-') {
+            int year = digits(text, 0, 4);
+            int month = digits(text, 5, 7);
+            int day = digits(text, 8, 10);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                try {
+                    return LocalDate.of(year, month, day);
+                } catch (DateTimeException e) {
+                    throw new DateTimeParseException("Invalid date", text, 0, e);
+                }
+            }
+        }
+        return LocalDate.parse(text);
+    }
+
+    /**
+     * Parses the YYYYMMDD start of an OFX date such as 20250131120000[-5:EST].
+     */
+    private static LocalDate parseOfxDate(String text) {
+        int year = digits(text, 0, 4);
+        int month = digits(text, 4, 6);
+        int day = digits(text, 6, 8);
+        if (year < 0 || month < 0 || day < 0) throw new DateTimeParseException("Invalid date", text, 0);
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Reads a run of decimal digits, or returns -1 if a non-digit is found.
+     */
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static long parseAmount(String text) {
+        return Money.parse(text.replace("$", "").replace(",", ""));
+    }
+
+    /**
+     * Splits a CSV line on commas, honouring double-quoted fields.
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Splits the input stream into chunks of at most {@link #BATCH_SIZE} records.
+     * A CSV record is one line; an OFX record is one {@code <STMTTRN>} block.
+     */
+    private static class ChunkReader {
+        private final BufferedReader reader;
+        private final boolean ofx;
+        private final StringBuilder pending = new StringBuilder();
+        private int lineNumber;
+        private int blockStartLine;
+
+        ChunkReader(BufferedReader reader, boolean ofx) {
+            this.reader = reader;
+            this.ofx = ofx;
+        }
+
+        Chunk next() throws IOException {
+            Chunk chunk = new Chunk();
+            String line;
+            while (chunk.records.size() < BATCH_SIZE && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!ofx) {
+                    chunk.add(line, lineNumber);
+                    continue;
+                }
+                if (pending.length() == 0) blockStartLine = lineNumber;
+                pending.append(line).append('\n');
+                int open;
+                int close;
+                while ((open = pending.indexOf("<STMTTRN>")) >= 0
+                        && (close = pending.indexOf("</STMTTRN>", open)) >= 0) {
+                    chunk.add(pending.substring(open, close), blockStartLine);
+                    pending.delete(0, close + "</STMTTRN>".length());
+                    blockStartLine = lineNumber;
+                }
+                if (pending.indexOf("<STMTTRN>") < 0) {
+                    pending.setLength(0); // Nothing but headers so far
+                }
+            }
+            return chunk.records.isEmpty() ? null : chunk;
+        }
+    }
+
+    /**
+     * A slice of raw records along with the line each one starts on.
+     */
+    private static class Chunk {
+        final List<String> records = new ArrayList<>();
+        int[] lines = new int[16];
+
+        void add(String record, int line) {
+            if (records.size() == lines.length) {
+                lines = Arrays.copyOf(lines, lines.length * 2);
+            }
+            lines[records.size()] = line;
+            records.add(record);
+        }
+    }
+
+    /**
+     * The parsed and validated contents of one chunk.
+     */
+    private static class Batch {
+        final List<Expense> expenses = new ArrayList<>();
+        final List<Income> incomes = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+    }
+
+    /**
+     * One statement transaction before it becomes an expense or income.
+     */
+    private static class Row {
+        LocalDate date;
+        long amount; // cents
+        String description;
+        String method;
+    }
+
+    /**
+     * Summary of an import run.
+     */
+    public static class Result {
+        private int expenses;
+        private int incomes;
+        private int rejected;
+        private int flagged;
+        private long nanos;
+        private final List<String> errors = new ArrayList<>();
+        private final List<String> anomalies = new ArrayList<>();
+
+        /**
+         * Gets the number of rows that were imported.
+         * @return imported expenses plus imported incomes
+         */
+        public int getImported() {
+            return expenses + incomes;
+        }
+
+        /**
+         * Gets the number of rows that failed validation.
+         * @return the rejected row count
+         */
+        public int getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Gets the number of imported expenses that look unusual for their category.
+         * @return the flagged expense count
+         */
+        public int getFlagged() {
+            return flagged;
+        }
+
+        /**
+         * Prints the summary, including the first few rejected rows and unusual expenses.
+         */
+        public void print() {
+            double seconds = nanos / 1e9;
+            System.out.printf("Imported %d expense(s) and %d income(s) in %.2fs (%.0f rows/s)%n",
+                    expenses, incomes, seconds, seconds > 0 ? getImported() / seconds : 0);
+            if (rejected > 0) {
+                System.out.println(rejected + " row(s) rejected:");
+                errors.forEach(error -> System.out.println("  " + error));
+            }
+            if (flagged > 0) {
+                System.out.println(flagged + " unusual expense(s):");
+                anomalies.forEach(anomaly -> System.out.println("  " + anomaly));
+            }
+        }
+    }
+}
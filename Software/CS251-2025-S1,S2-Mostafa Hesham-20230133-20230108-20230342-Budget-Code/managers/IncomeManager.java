@@ -1,41 +1,139 @@
 package managers;
 
 import entities.Income;
+import entities.RecurrenceRule;
+import entities.RecurringEntry;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import utils.Checkpoint;
+import utils.ColumnStore;
+import utils.ConcurrentStore;
+import utils.CurrencyTotal;
+import utils.DateIndex;
+import utils.Filters;
 import utils.InputHelper;
+import utils.Metrics;
+import utils.Money;
+import utils.PagedView;
+import utils.RecordLog;
+import utils.RecurrenceView;
 import utils.SerializationHelper;
+import utils.TextIndex;
+import utils.Validators;
 
 /**
  * Manages income records by allowing users to add and view income entries.
  * Provides a menu-driven interface for user interaction.
+ * <p>
+ * The manager is safe to use from several threads, in the same way as the
+ * {@link ExpenseManager}: readers work on snapshots of a {@link ConcurrentStore}
+ * and only the file writes of an insert are serialized.
+ * </p>
  */
 public class IncomeManager implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final String INCOMES_FILE = "incomes.ser";
-    private List<Income> incomes;
+    private static final String INCOMES_LOG = "incomes.log";
+    private static final String RECURRING_FILE = "recurring-incomes.ser";
+    private final RecordLog<Income> incomesLog;
+    private final ColumnStore incomesColumns;
+    private final DateIndex<Income> incomesByDate = new DateIndex<>(Income::getDate);
+    private final TextIndex incomesByText = new TextIndex();
+    private final ConcurrentStore<Income> incomes = new ConcurrentStore<>();
+    private List<RecurringEntry<Income>> recurring;
+    private final String recurringFile;
+    private final Checkpoint recurringCheckpoint;
     private final InputHelper input = new InputHelper();
 
-    public IncomeManager() {
+    /**
+     * Creates the manager for one user's data partition and loads its incomes.
+     * @param directory the partition prefix of the logged-in user
+     */
+    public IncomeManager(String directory) {
+        incomesLog = new RecordLog<>(directory + INCOMES_FILE, directory + INCOMES_LOG);
+        incomesColumns = new ColumnStore(directory + "incomes");
+        recurringFile = directory + RECURRING_FILE;
+        recurringCheckpoint = new Checkpoint(recurringFile, () -> new ArrayList<>(recurring));
         loadIncomes();
+        loadRecurring();
+        Metrics.gauge(directory + "incomes", incomes::size);
     }
 
     /**
-     * Loads incomes from the serialized file.
+     * Loads incomes from the snapshot file and replays the append-only log, then
+     * builds the date and text indexes. The column store is rebuilt if it is out
+     * of step with the log.
      */
-    @SuppressWarnings("unchecked")
     private void loadIncomes() {
-        Object loaded = SerializationHelper.loadObject(INCOMES_FILE);
-        incomes = (loaded != null) ? (List<Income>) loaded : new ArrayList<>();
+        List<Income> loaded = incomesLog.load();
+        // Earlier versions could log an income without a date; it is dropped for good
+        if (loaded.removeIf(income -> income.getDate() == null)) incomesLog.compact(loaded);
+        incomes.addAll(loaded);
+        addToTextIndex(loaded, 0);
+        incomesByDate.addAll(loaded);
+        if (incomesColumns.size() != loaded.size()) {
+            incomesColumns.rebuild(loaded, Income::getAmountCents, Income::getCurrencyId, Income::getDate, Income::getSourceId);
+        }
+    }
+
+    /**
+     * Loads the recurring income templates from the serialized file.
+     */
+    @SuppressWarnings("unchecked")
+    private void loadRecurring() {
+        Object loaded = SerializationHelper.loadObject(recurringFile);
+        recurring = new CopyOnWriteArrayList<>((loaded != null) ? (List<RecurringEntry<Income>>) loaded : new ArrayList<>());
+    }
+
+    /**
+     * Saves the recurring income templates if they changed since the last save.
+     * Plain incomes need no checkpoint because each one is appended to the log as it is added.
+     * @return true if the file is up to date, false if saving failed
+     */
+    public boolean checkpoint() {
+        return recurringCheckpoint.flush();
     }
 
     /**
-     * Saves incomes to the serialized file.
+     * Adds a batch of income records, persisting the whole batch in a single write
+     * to the log and the column store.
+     * The store and the files are updated together under the log's lock, so the
+     * order of the log always matches the order of the store. The whole batch is
+     * checked, and then written to the log, before any of it is added to the store,
+     * so a bad record or a failed write leaves both unchanged.
+     * @param batch the income records to add
+     * @throws IllegalArgumentException if a record has no date, a date out of range or a non-positive amount
+     * @throws IllegalStateException if the batch could not be written to the log
      */
-    private void saveIncomes() {
-        SerializationHelper.saveObject(incomes, INCOMES_FILE);
+    public void addIncomes(List<Income> batch) {
+        for (Income income : batch) {
+            if (income.getDate() == null) throw new IllegalArgumentException("Income has no date");
+            if (!Validators.validateDate(income.getDate())) {
+                throw new IllegalArgumentException("Income date must be between " + Validators.MIN_DATE + " and " + Validators.MAX_DATE);
+            }
+            if (!Validators.validateTransaction(income.getAmountCents())) {
+                throw new IllegalArgumentException("Income amount must be positive");
+            }
+        }
+        synchronized (incomesLog) {
+            if (!incomesLog.appendAll(batch, incomes.snapshotWith(batch))) {
+                throw new IllegalStateException("Could not save incomes");
+            }
+            int first = incomes.size();
+            incomes.addAll(batch);
+            incomesColumns.appendAll(batch, Income::getAmountCents, Income::getCurrencyId, Income::getDate, Income::getSourceId);
+            addToTextIndex(batch, first);
+        }
+        Metrics.add("incomes.inserted", batch.size());
+        incomesByDate.addAll(batch);
     }
 
     /**
@@ -45,7 +143,7 @@ public class IncomeManager implements Serializable {
     public void showMenu() {
         while (true) {
             System.out.println("\n=== INCOME MANAGEMENT ===");
-            System.out.println("1. Add Income\n2. View History\n3. Back");
+            System.out.println("1. Add Income\n2. View History\n3. View Totals\n4. View Period\n5. Add Recurring\n6. View Recurring\n7. Search\n8. Back");
 
             switch (input.getNonEmpty("Choose: ")) {
                 case "1":
@@ -55,6 +153,22 @@ public class IncomeManager implements Serializable {
                     displayIncome();
                     break;
                 case "3":
+                    displayTotals();
+                    break;
+                case "4":
+                    displayPeriod();
+                    break;
+                case "5":
+                    addRecurring();
+                    break;
+                case "6":
+                    displayRecurring();
+                    break;
+                case "7":
+                    displaySearch();
+                    break;
+                case "8":
+                    checkpoint();
                     return;
                 default:
                     System.out.println("Invalid choice");
@@ -67,23 +181,201 @@ public class IncomeManager implements Serializable {
      * The income record is then added to the list of incomes.
      */
     public void addIncome() {
-        double amount = input.getPositiveDouble("Amount: $");
+        long amount = input.getPositiveAmount("Amount: ");
+        String currency = input.getCurrency();
         String source = input.getNonEmpty("Source: ");
         LocalDate date = input.getDate("Date (YYYY-MM-DD): ");
-        incomes.add(new Income(amount, source, date));
-        saveIncomes();
-        System.out.println("Income recorded!");
+        try {
+            addIncome(Income.ofCents(amount, source, date).inCurrency(currency));
+            System.out.println("Income recorded!");
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage() + "!");
+        }
+    }
+
+    /**
+     * Adds an income record without prompting.
+     * @param income the income to add
+     */
+    public void addIncome(Income income) {
+        addIncomes(Collections.singletonList(income));
+    }
+
+    /**
+     * Prompts the user to add a recurring income by entering the amount, source and how often
+     * it repeats. Only the template is stored; its occurrences are generated when needed.
+     */
+    public void addRecurring() {
+        long amount = input.getPositiveAmount("Amount: ");
+        String currency = input.getCurrency();
+        String source = input.getNonEmpty("Source: ");
+        RecurrenceRule rule = input.getRecurrenceRule();
+        recurring.add(new RecurringEntry<>(Income.ofCents(amount, source, rule.getStart()).inCurrency(currency), rule));
+        recurringCheckpoint.markDirty();
+        System.out.println("Recurring income recorded!");
     }
 
     /**
-     * Displays all income records in the list.
+     * Displays the recurring income templates.
+     * If none are found, a message is displayed to the user.
+     */
+    private void displayRecurring() {
+        if (recurring.isEmpty()) {
+            System.out.println("No recurring income found!");
+            return;
+        }
+        new PagedView<>(recurring, entry -> true, RecurringEntry::toString).browse(input);
+    }
+
+    /**
+     * Displays the income records matching the user's filters, one page at a time.
      * If no income records are found, a message is displayed to the user.
      */
     private void displayIncome() {
-        if (incomes.isEmpty()) {
+        if (incomes.size() == 0 && recurring.isEmpty()) {
             System.out.println("No income records found!");
             return;
         }
-        incomes.forEach(System.out::println);
+        System.out.println("Filters (press Enter to skip):");
+        LocalDate from = input.getOptionalDate("From (YYYY-MM-DD): ");
+        LocalDate to = input.getOptionalDate("To (YYYY-MM-DD): ");
+        String source = input.getOptional("Source: ");
+        Double min = input.getOptionalDouble("Min amount: $");
+        Double max = input.getOptionalDouble("Max amount: $");
+        Predicate<Income> filter = Filters.dateRange(Income::getDate, from, to)
+                .and(Filters.dictionaryText(Income::getSourceId, source))
+                .and(Filters.amountRange(Income::getAmount, min, max));
+        List<Income> history = getIncomesThrough((to != null) ? to : LocalDate.now());
+        new PagedView<>(history, filter, Income::toString).browse(input);
+    }
+
+    /**
+     * Prompts for search words and displays the incomes whose source matches them,
+     * one page at a time.
+     */
+    private void displaySearch() {
+        String query = input.getNonEmpty("Search source: ");
+        long start = System.nanoTime();
+        List<Income> matches = searchIncomes(query);
+        if (matches.isEmpty()) {
+            System.out.println("No matching incomes!");
+            return;
+        }
+        System.out.printf("%d matches in %.2f ms%n", matches.size(), (System.nanoTime() - start) / 1e6);
+        new PagedView<Income>(matches, income -> true, Income::toString).browse(input);
+    }
+
+    /**
+     * Indexes the source of incomes stored from a position on.
+     */
+    private void addToTextIndex(List<Income> stored, int first) {
+        for (int i = 0; i < stored.size(); i++) {
+            incomesByText.add(first + i, stored.get(i).getSource());
+        }
+    }
+
+    /**
+     * Finds the stored incomes whose source contains a word starting with each word
+     * of a query. Occurrences of recurring incomes are not searched.
+     * @param query the words to look for
+     * @return the matching income records in the order they were added
+     */
+    public List<Income> searchIncomes(String query) {
+        List<Income> stored = incomes.snapshot();
+        int[] positions = incomesByText.search(query, true);
+        List<Income> matches = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            // The index may already hold incomes added after the snapshot was taken
+            if (position < stored.size()) matches.add(stored.get(position));
+        }
+        return matches;
+    }
+
+    /**
+     * Gets every income record, including the occurrences of recurring incomes up to today.
+     * @return a read-only view of the income records
+     */
+    public List<Income> getIncomes() {
+        return getIncomesThrough(LocalDate.now());
+    }
+
+    /**
+     * Gets the stored income records in the order they were added, followed by the
+     * occurrences of recurring incomes up to a date. Occurrences are created as they are read.
+     * @param to the last day to include occurrences for (inclusive)
+     * @return a read-only view of the income records
+     */
+    public List<Income> getIncomesThrough(LocalDate to) {
+        return new RecurrenceView<>(incomes.snapshot(), recurring, null, to, Income::onDate);
+    }
+
+    /**
+     * Gets the income records dated within a period, using the date index, together
+     * with the occurrences of recurring incomes in that period.
+     * @param from the first day of the period (inclusive)
+     * @param to the last day of the period (inclusive)
+     * @return the matching income records in date order
+     */
+    public List<Income> getIncomesBetween(LocalDate from, LocalDate to) {
+        List<Income> stored = incomesByDate.between(from, to);
+        if (recurring.isEmpty()) return stored;
+        List<Income> period = new ArrayList<>(new RecurrenceView<>(stored, recurring, from, to, Income::onDate));
+        period.sort(Comparator.comparing(Income::getDate));
+        return period;
+    }
+
+    /**
+     * Prompts for a period and displays the income records within it along with their total.
+     */
+    private void displayPeriod() {
+        LocalDate from = input.getDate("From (YYYY-MM-DD): ");
+        LocalDate to = input.getDate("To (YYYY-MM-DD): ");
+        List<Income> period = getIncomesBetween(from, to);
+        if (period.isEmpty()) {
+            System.out.println("No income records found!");
+            return;
+        }
+        new PagedView<Income>(period, income -> true, Income::toString).browse(input);
+        CurrencyTotal received = new CurrencyTotal();
+        for (Income income : period) {
+            received.add(income.getCurrencyId(), (int) income.getDate().toEpochDay(), income.getAmountCents());
+        }
+        System.out.printf("Received in period: $%s%n", Money.format(received.toBase()));
+    }
+
+    /**
+     * Displays the overall total, the total for the current month and the total per source.
+     * Totals of stored incomes are computed by scanning the column store rather than the
+     * loaded records; recurring incomes add their occurrences up to today.
+     */
+    private void displayTotals() {
+        if (incomesColumns.size() == 0 && recurring.isEmpty()) {
+            System.out.println("No income records found!");
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        LocalDate monthStart = today.withDayOfMonth(1);
+        long total = incomesColumns.total();
+        long month = incomesColumns.totalBetween(monthStart, today);
+        Map<String, Long> bySource = new LinkedHashMap<>(incomesColumns.totalsByCategory());
+        for (RecurringEntry<Income> entry : recurring) {
+            long received = recurringTotal(entry, entry.getRule().getStart(), today);
+            total += received;
+            month += recurringTotal(entry, monthStart, today);
+            if (received > 0) bySource.merge(entry.getTemplate().getSource(), received, Long::sum);
+        }
+        System.out.printf("Total received: $%s%n", Money.format(total));
+        System.out.printf("Received this month: $%s%n", Money.format(month));
+        bySource.forEach((name, sum) -> System.out.printf("  %s: $%s%n", name, Money.format(sum)));
+    }
+
+    /**
+     * Gets the total of the occurrences of a recurring income within a period, in the base currency.
+     */
+    private static long recurringTotal(RecurringEntry<Income> entry, LocalDate from, LocalDate to) {
+        Income template = entry.getTemplate();
+        CurrencyTotal total = new CurrencyTotal();
+        total.addOccurrences(entry.getRule(), template.getCurrencyId(), template.getAmountCents(), from, to);
+        return total.toBase();
     }
-}
\ No newline at end of file
+}
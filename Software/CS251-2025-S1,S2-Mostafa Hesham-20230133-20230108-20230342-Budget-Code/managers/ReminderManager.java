@@ -3,40 +3,87 @@ package managers;
 import entities.Reminder;
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import utils.Checkpoint;
+import utils.Filters;
 import utils.InputHelper;
+import utils.Metrics;
+import utils.PagedView;
 import utils.SerializationHelper;
+import utils.TextIndex;
 
 /**
  * Manages reminders by allowing users to create and view reminders.
  * Provides a menu-driven interface for user interaction.
+ * Reminders are kept in a copy-on-write list, so the scheduler thread and
+ * other readers can go through them while new ones are added.
  */
 public class ReminderManager implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final String REMINDERS_FILE = "reminders.ser";
     private List<Reminder> reminders;
+    private final TextIndex remindersByTitle = new TextIndex();
+    private final String file;
+    private final Checkpoint checkpoint;
+    private final ReminderScheduler scheduler;
     private final InputHelper input = new InputHelper();
 
-    public ReminderManager() {
+    /**
+     * Creates the manager for one user's data partition and loads its reminders.
+     * @param directory the partition prefix of the logged-in user
+     */
+    public ReminderManager(String directory) {
+        file = directory + REMINDERS_FILE;
+        checkpoint = new Checkpoint(file, () -> new ArrayList<>(reminders));
+        scheduler = new ReminderScheduler(this::onFire);
         loadReminders();
+        Metrics.gauge(directory + "reminders", reminders::size);
     }
 
     /**
-     * Loads reminders from the serialized file.
+     * Loads reminders from the serialized file and schedules the ones that have not fired.
+     * Reminders that fell due while the application was closed fire straight away.
      */
     @SuppressWarnings("unchecked")
     private void loadReminders() {
-        Object loaded = SerializationHelper.loadObject(REMINDERS_FILE);
-        reminders = (loaded != null) ? (List<Reminder>) loaded : new ArrayList<>();
+        Object loaded = SerializationHelper.loadObject(file);
+        reminders = new CopyOnWriteArrayList<>((loaded != null) ? (List<Reminder>) loaded : new ArrayList<>());
+        for (int i = 0; i < reminders.size(); i++) {
+            remindersByTitle.add(i, reminders.get(i).getTitle());
+        }
+        reminders.forEach(scheduler::schedule);
+    }
+
+    /**
+     * Saves reminders to the serialized file if they changed since the last save.
+     * @return true if the file is up to date, false if saving failed
+     */
+    public boolean checkpoint() {
+        return checkpoint.flush();
+    }
+
+    /**
+     * Stops firing reminders and saves their state.
+     * @return true if the file is up to date, false if saving failed
+     */
+    public boolean close() {
+        scheduler.close();
+        return checkpoint();
     }
 
     /**
-     * Saves reminders to the serialized file.
+     * Announces a reminder that just fell due and records that it fired.
+     * Runs on the scheduler thread.
      */
-    private void saveReminders() {
-        SerializationHelper.saveObject(reminders, REMINDERS_FILE);
+    private void onFire(Reminder reminder) {
+        System.out.println("\n*** Reminder due: " + reminder.getTitle() + " (" + reminder.getDate() + " " + reminder.getTime() + ")");
+        checkpoint.markDirty();
     }
 
     /**
@@ -46,7 +93,7 @@ public class ReminderManager implements Serializable {
     public void showMenu() {
         while (true) {
             System.out.println("\n=== REMINDER MANAGEMENT ===");
-            System.out.println("1. Create Reminder\n2. View Reminders\n3. Back");
+            System.out.println("1. Create Reminder\n2. View Reminders\n3. Upcoming\n4. Search\n5. Back");
 
             switch (input.getNonEmpty("Choose: ")) {
                 case "1":
@@ -56,6 +103,13 @@ public class ReminderManager implements Serializable {
                     displayReminders();
                     break;
                 case "3":
+                    displayUpcoming();
+                    break;
+                case "4":
+                    displaySearch();
+                    break;
+                case "5":
+                    checkpoint();
                     return;
                 default:
                     System.out.println("Invalid choice");
@@ -71,13 +125,71 @@ public class ReminderManager implements Serializable {
         String title = input.getValidString("Title: ", 3, 50);
         LocalDate date = input.getFutureDate("Date (YYYY-MM-DD): ");
         LocalTime time = input.getTime("Time (HH:mm): ");
-        reminders.add(new Reminder(title, date, time));
-        saveReminders();
+        addReminder(new Reminder(title, date, time));
         System.out.println("Reminder set!");
     }
 
     /**
-     * Displays all reminders in the list.
+     * Adds a reminder without prompting and schedules it to fire.
+     * @param reminder the reminder to add
+     */
+    public void addReminder(Reminder reminder) {
+        // Positions in the title index must follow the order of the list
+        synchronized (remindersByTitle) {
+            reminders.add(reminder);
+            remindersByTitle.add(reminders.size() - 1, reminder.getTitle());
+        }
+        checkpoint.markDirty();
+        scheduler.schedule(reminder);
+    }
+
+    /**
+     * Gets every reminder in the order they were created.
+     * @return a read-only view of the reminders
+     */
+    public List<Reminder> getReminders() {
+        return Collections.unmodifiableList(reminders);
+    }
+
+    /**
+     * Gets the reminders that have not fired yet and are due within a period, soonest first.
+     * @param from the start of the period (inclusive)
+     * @param to the end of the period (inclusive)
+     * @return the matching reminders
+     */
+    public List<Reminder> getUpcoming(LocalDateTime from, LocalDateTime to) {
+        return scheduler.upcoming(from, to);
+    }
+
+    /**
+     * Finds the reminders whose title contains a word starting with each word of a query.
+     * @param query the words to look for
+     * @return the matching reminders in the order they were created
+     */
+    public List<Reminder> searchReminders(String query) {
+        List<Reminder> current = reminders;
+        int[] positions = remindersByTitle.search(query, true);
+        List<Reminder> matches = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            if (position < current.size()) matches.add(current.get(position));
+        }
+        return matches;
+    }
+
+    /**
+     * Prompts for search words and displays the reminders whose title matches them.
+     */
+    private void displaySearch() {
+        List<Reminder> matches = searchReminders(input.getNonEmpty("Search title: "));
+        if (matches.isEmpty()) {
+            System.out.println("No matching reminders!");
+            return;
+        }
+        new PagedView<Reminder>(matches, reminder -> true, Reminder::toString).browse(input);
+    }
+
+    /**
+     * Displays the reminders matching the user's filters, one page at a time.
      * If no reminders are found, a message is displayed to the user.
      */
     private void displayReminders() {
@@ -85,6 +197,25 @@ public class ReminderManager implements Serializable {
             System.out.println("No reminders found!");
             return;
         }
-        reminders.forEach(System.out::println);
+        System.out.println("Filters (press Enter to skip):");
+        LocalDate from = input.getOptionalDate("From (YYYY-MM-DD): ");
+        LocalDate to = input.getOptionalDate("To (YYYY-MM-DD): ");
+        Predicate<Reminder> filter = Filters.dateRange(Reminder::getDate, from, to);
+        new PagedView<>(reminders, filter, Reminder::toString).browse(input);
+    }
+
+    /**
+     * Prompts for a number of days and displays the pending reminders due within them,
+     * soonest first.
+     */
+    private void displayUpcoming() {
+        int days = input.getPositiveInt("Days ahead: ");
+        LocalDateTime now = LocalDateTime.now();
+        List<Reminder> upcoming = getUpcoming(now, now.plusDays(days));
+        if (upcoming.isEmpty()) {
+            System.out.println("No upcoming reminders!");
+            return;
+        }
+        new PagedView<Reminder>(upcoming, reminder -> true, Reminder::toString).browse(input);
     }
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+package managers;
+
+import entities.Reminder;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Fires reminders when they fall due.
+ * <p>
+ * Pending reminders are kept in a map sorted by due time, which doubles as the
+ * index for upcoming-reminder queries. A single thread sleeps until the earliest
+ * due time and is woken early only when a sooner reminder is scheduled, so an idle
+ * scheduler uses no CPU however many reminders are pending. Reminders that fell
+ * due while the application was closed fire as soon as the scheduler starts.
+ * </p>
+ */
+public class ReminderScheduler {
+    private final NavigableMap<LocalDateTime, List<Reminder>> pending = new TreeMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Consumer<Reminder> onFire;
+    private final Thread thread;
+    private int size;
+
+    /**
+     * Creates and starts a scheduler.
+     * @param onFire called on the scheduler thread with each reminder that falls due,
+     *               after the reminder has been marked as fired
+     */
+    public ReminderScheduler(Consumer<Reminder> onFire) {
+        this.onFire = onFire;
+        thread = new Thread(this::run, "reminder-scheduler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Schedules a reminder that has not fired yet.
+     * @param reminder the reminder to schedule
+     */
+    public void schedule(Reminder reminder) {
+        if (reminder.isFired()) return;
+        lock.lock();
+        try {
+            LocalDateTime due = reminder.getDueAt();
+            boolean earliest = pending.isEmpty() || due.isBefore(pending.firstKey());
+            pending.computeIfAbsent(due, time -> new ArrayList<>(1)).add(reminder);
+            size++;
+            if (earliest) changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the pending reminders due within a period, in due-time order.
+     * @param from the start of the period (inclusive)
+     * @param to the end of the period (inclusive)
+     * @return the matching reminders
+     */
+    public List<Reminder> upcoming(LocalDateTime from, LocalDateTime to) {
+        List<Reminder> result = new ArrayList<>();
+        if (from.isAfter(to)) return result;
+        lock.lock();
+        try {
+            for (List<Reminder> due : pending.subMap(from, true, to, true).values()) {
+                result.addAll(due);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of reminders waiting to fire.
+     * @return the pending count
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the scheduler thread. Pending reminders stay unfired.
+     */
+    public void close() {
+        thread.interrupt();
+    }
+
+    /**
+     * Sleeps until the earliest reminder is due, then fires everything that is due.
+     */
+    private void run() {
+        try {
+            while (true) {
+                List<Reminder> due = awaitDue();
+                for (Reminder reminder : due) {
+                    reminder.markFired();
+                    onFire.accept(reminder);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Blocks until at least one reminder is due and removes all due reminders.
+     */
+    private List<Reminder> awaitDue() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                if (pending.isEmpty()) {
+                    changed.await();
+                    continue;
+                }
+                LocalDateTime now = LocalDateTime.now();
+                long wait = Duration.between(now, pending.firstKey()).toNanos();
+                if (wait > 0) {
+                    changed.awaitNanos(wait);
+                    continue;
+                }
+                List<Reminder> due = new ArrayList<>();
+                Map<LocalDateTime, List<Reminder>> head = pending.headMap(now, true);
+                head.values().forEach(due::addAll);
+                head.clear();
+                size -= due.size();
+                return due;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package managers;
+
+import entities.Expense;
+import entities.Income;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import utils.InputHelper;
+import utils.Money;
+import utils.ParallelAggregator;
+import utils.StringDictionary;
+
+/**
+ * Produces summary reports over the stored expense and income history.
+ * Aggregation runs in parallel with fork-join, so large histories summarize quickly.
+ * Amounts are summed in cents, so the totals are exact, and reported in the
+ * base currency; amounts in other currencies are converted per group rather than per record.
+ */
+public class ReportManager {
+    private static final int TOP_METHODS = 5;
+
+    private final ExpenseManager expenseManager;
+    private final IncomeManager incomeManager;
+    private final InputHelper input = new InputHelper();
+
+    /**
+     * Creates a report manager over one user's history.
+     * @param expenseManager the expenses to report on
+     * @param incomeManager the incomes to report on
+     */
+    public ReportManager(ExpenseManager expenseManager, IncomeManager incomeManager) {
+        this.expenseManager = expenseManager;
+        this.incomeManager = incomeManager;
+    }
+
+    /**
+     * Displays the reports menu and handles user input.
+     */
+    public void showMenu() {
+        while (true) {
+            System.out.println("\n=== REPORTS ===");
+            System.out.println("1. Monthly Totals by Category\n2. Net Cash Flow\n3. Top Payment Methods\n4. Back");
+
+            switch (input.getNonEmpty("Choose: ")) {
+                case "1":
+                    displayMonthlyTotals();
+                    break;
+                case "2":
+                    displayCashFlow();
+                    break;
+                case "3":
+                    displayTopPaymentMethods();
+                    break;
+                case "4":
+                    return;
+                default:
+                    System.out.println("Invalid choice");
+            }
+        }
+    }
+
+    /**
+     * Displays the expense total of every category for every month, oldest month first.
+     */
+    private void displayMonthlyTotals() {
+        List<Expense> expenses = expenseManager.getExpenses();
+        if (expenses.isEmpty()) {
+            System.out.println("No expenses found!");
+            return;
+        }
+        // Key: month index in the high bits, category id in the low bits
+        Map<Long, long[]> sums = ParallelAggregator.sumInBaseCurrency(expenses,
+                e -> ((long) monthIndex(e.getDate()) << 32) | e.getCategoryId(),
+                Expense::getAmountCents, Expense::getCurrencyId, e -> (int) e.getDate().toEpochDay());
+
+        StringDictionary dictionary = StringDictionary.shared();
+        int currentMonth = -1;
+        for (Map.Entry<Long, long[]> entry : new TreeMap<>(sums).entrySet()) {
+            int month = (int) (entry.getKey() >>> 32);
+            if (month != currentMonth) {
+                currentMonth = month;
+                System.out.println(toYearMonth(month) + ":");
+            }
+            String category = dictionary.valueOf((int) (entry.getKey() & 0xFFFFFFFFL));
+            System.out.printf("  %-20s $%s%n", category, Money.format(entry.getValue()[0]));
+        }
+    }
+
+    /**
+     * Displays income, expenses and their difference for every month, and overall.
+     */
+    private void displayCashFlow() {
+        Map<Long, long[]> income = ParallelAggregator.sumInBaseCurrency(incomeManager.getIncomes(),
+                i -> monthIndex(i.getDate()), Income::getAmountCents, Income::getCurrencyId, i -> (int) i.getDate().toEpochDay());
+        Map<Long, long[]> spent = ParallelAggregator.sumInBaseCurrency(expenseManager.getExpenses(),
+                e -> monthIndex(e.getDate()), Expense::getAmountCents, Expense::getCurrencyId, e -> (int) e.getDate().toEpochDay());
+        if (income.isEmpty() && spent.isEmpty()) {
+            System.out.println("No income or expenses found!");
+            return;
+        }
+
+        TreeMap<Long, long[]> months = new TreeMap<>();
+        income.forEach((month, sum) -> months.computeIfAbsent(month, m -> new long[2])[0] = sum[0]);
+        spent.forEach((month, sum) -> months.computeIfAbsent(month, m -> new long[2])[1] = sum[0]);
+
+        long totalIn = 0;
+        long totalOut = 0;
+        System.out.printf("%-8s %14s %14s %14s%n", "Month", "Income", "Expenses", "Net");
+        for (Map.Entry<Long, long[]> entry : months.entrySet()) {
+            long in = entry.getValue()[0];
+            long out = entry.getValue()[1];
+            totalIn += in;
+            totalOut += out;
+            printFlow(toYearMonth(entry.getKey().intValue()).toString(), in, out);
+        }
+        printFlow("Total", totalIn, totalOut);
+    }
+
+    private static void printFlow(String label, long in, long out) {
+        System.out.printf("%-8s %14s %14s %14s%n", label, Money.format(in), Money.format(out), Money.format(in - out));
+    }
+
+    /**
+     * Displays the payment methods with the highest total spend.
+     */
+    private void displayTopPaymentMethods() {
+        List<Expense> expenses = expenseManager.getExpenses();
+        if (expenses.isEmpty()) {
+            System.out.println("No expenses found!");
+            return;
+        }
+        Map<Long, long[]> sums = ParallelAggregator.sumInBaseCurrency(expenses, Expense::getPaymentMethodId,
+                Expense::getAmountCents, Expense::getCurrencyId, e -> (int) e.getDate().toEpochDay());
+
+        List<Map.Entry<Long, long[]>> ranked = new ArrayList<>(sums.entrySet());
+        ranked.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        StringDictionary dictionary = StringDictionary.shared();
+        for (int i = 0; i < Math.min(TOP_METHODS, ranked.size()); i++) {
+            Map.Entry<Long, long[]> entry = ranked.get(i);
+            System.out.printf("%d. %-20s $%s (%d payments)%n", i + 1,
+                    dictionary.valueOf(entry.getKey().intValue()), Money.format(entry.getValue()[0]), entry.getValue()[1]);
+        }
+    }
+
+    /**
+     * Numbers months consecutively so that they sort chronologically.
+     */
+    private static int monthIndex(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    private static YearMonth toYearMonth(int monthIndex) {
+        return YearMonth.of(Math.floorDiv(monthIndex, 12), Math.floorMod(monthIndex, 12) + 1);
+    }
+}
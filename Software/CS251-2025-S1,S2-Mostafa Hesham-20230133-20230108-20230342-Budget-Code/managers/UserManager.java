@@ -4,38 +4,61 @@ import entities.User;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import utils.Checkpoint;
+import utils.ConcurrentStore;
 import utils.InputHelper;
+import utils.Metrics;
 import utils.SerializationHelper;
 
 /**
  * Manages user-related operations such as login, registration, and profile
  * management.
+ * Users are indexed by username, so login is a hash lookup and registration
+ * can reject names that are already taken.
+ * The index is a concurrent map, so logins never block and two threads can
+ * never register the same username.
  */
 public class UserManager implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final String USERS_FILE = "users.ser";
-    private List<User> users;
+    private Map<String, User> usersByName;
+    // Registration order, in which users are persisted (the same format as before the index)
+    private final ConcurrentStore<User> users = new ConcurrentStore<>();
+    private final Checkpoint checkpoint = new Checkpoint(USERS_FILE, () -> new ArrayList<>(users.snapshot()));
     private final InputHelper input = new InputHelper();
     private User currentUser; // Track logged-in user
 
     public UserManager() {
         loadUsers();
+        Metrics.gauge("users", users::size);
     }
 
     /**
-     * Loads users from the serialized file.
+     * Loads users from the serialized file and builds the username index.
+     * If older data holds the same username twice, the first account is kept.
      */
     @SuppressWarnings("unchecked")
     private void loadUsers() {
         Object loaded = SerializationHelper.loadObject(USERS_FILE);
-        users = (loaded != null) ? (List<User>) loaded : new ArrayList<>();
+        List<User> stored = (loaded != null) ? (List<User>) loaded : new ArrayList<>();
+        usersByName = new ConcurrentHashMap<>(Math.max(16, stored.size() * 4 / 3 + 1));
+        for (User user : stored) {
+            if (usersByName.putIfAbsent(user.getUsername(), user) != null) {
+                checkpoint.markDirty();
+            } else {
+                users.add(user);
+            }
+        }
     }
 
     /**
-     * Saves users to the serialized file.
+     * Saves users to the serialized file if they changed since the last save.
+     * @return true if the file is up to date, false if saving failed
      */
-    private void saveUsers() {
-        SerializationHelper.saveObject(users, USERS_FILE);
+    public boolean checkpoint() {
+        return checkpoint.flush();
     }
 
     /**
@@ -79,7 +102,7 @@ public class UserManager implements Serializable {
 
         String newPassword = input.getNonEmpty("Enter new password: ");
         currentUser.setPassword(newPassword);
-        saveUsers();
+        checkpoint.markDirty();
         System.out.println("Password changed successfully!");
     }
 
@@ -103,11 +126,7 @@ public class UserManager implements Serializable {
         String username = input.getNonEmpty("Username: ");
         String password = input.getNonEmpty("Password: ");
 
-        currentUser = users.stream()
-                .filter(u -> u.getUsername().equals(username) && u.validatePassword(password))
-                .findFirst()
-                .orElse(null);
-
+        currentUser = authenticate(username, password);
         if (currentUser != null) {
             System.out.println("Login successful!");
             return true;
@@ -116,19 +135,62 @@ public class UserManager implements Serializable {
         return false;
     }
 
+    /**
+     * Looks up a user by username and checks the password.
+     * 
+     * @param username the username to look up
+     * @param password the password to check
+     * @return the matching user, or null if the credentials are invalid
+     */
+    public User authenticate(String username, String password) {
+        User user = usersByName.get(username);
+        boolean valid = user != null && user.validatePassword(password);
+        Metrics.increment(valid ? "logins" : "logins.failed");
+        return valid ? user : null;
+    }
+
+    /**
+     * Checks whether a username is already registered.
+     * 
+     * @param username the username to check
+     * @return true if the username is taken, false otherwise
+     */
+    public boolean isUsernameTaken(String username) {
+        return usersByName.containsKey(username);
+    }
+
     /**
      * Registers a new user.
      */
     public void register() {
         String username = input.getNonEmpty("Username: ");
+        if (isUsernameTaken(username)) {
+            System.out.println("Username already taken!");
+            return;
+        }
         String password = input.getNonEmpty("Password: ");
         String email = input.getValidEmail("Email: ");
 
-        users.add(new User(username, password, email));
-        saveUsers();
+        register(username, password, email);
         System.out.println("Registration successful!");
     }
 
+    /**
+     * Registers a new user without prompting.
+     * 
+     * @param username the username, which must not be taken
+     * @param password the password
+     * @param email the email address
+     * @return the new user, or null if the username is already taken
+     */
+    public User register(String username, String password, String email) {
+        User user = new User(username, password, email);
+        if (usersByName.putIfAbsent(username, user) != null) return null;
+        users.add(user);
+        checkpoint.markDirty();
+        return user;
+    }
+
     /**
      * Gets the currently logged-in user.
      * 
@@ -0,0 +1,27 @@
+package server;
+
+/**
+ * A request that cannot be served, carrying the HTTP status to answer with.
+ */
+public class ApiException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private final int status;
+
+    /**
+     * Creates an exception.
+     * @param status The HTTP status code
+     * @param message The error message sent to the client
+     */
+    public ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * Gets the HTTP status to answer with.
+     * @return the status code
+     */
+    public int getStatus() {
+        return status;
+    }
+}
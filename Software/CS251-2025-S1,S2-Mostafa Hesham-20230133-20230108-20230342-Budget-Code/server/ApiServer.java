@@ -0,0 +1,595 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import entities.Budget;
+import entities.Expense;
+import entities.Income;
+import entities.Reminder;
+import entities.User;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import managers.AnomalyDetector;
+import managers.BudgetForecaster;
+import managers.UserManager;
+import utils.ExchangeRates;
+import utils.Filters;
+import utils.Money;
+import utils.PagedView;
+import utils.RecurrenceView;
+import utils.Validators;
+
+/**
+ * Headless HTTP/JSON server exposing the user, budget, income, expense and
+ * reminder operations, for many concurrent users in one process.
+ * <p>
+ * Clients register, then log in to get a session token that they send as
+ * {@code Authorization: Bearer <token>}. Each logged-in user's managers are
+ * loaded once and shared by all of that user's sessions. The managers are
+ * thread-safe, so requests of the same user as well as of different users
+ * proceed in parallel without locking.
+ * Each request runs on a virtual thread of its own, so a request waiting on the
+ * disk or the network does not hold a platform thread. A request writing a
+ * partition's files inside the managers' {@code synchronized} blocks still pins
+ * its carrier thread until the write is done.
+ * </p>
+ * <pre>
+ * POST   /api/users          {username, password, email}
+ * POST   /api/sessions       {username, password}            returns {token}
+ * DELETE /api/sessions
+ * GET    /api/expenses       ?q&amp;from&amp;to&amp;category&amp;min&amp;max&amp;cursor&amp;limit
+ * POST   /api/expenses       {amount, category, method, date, currency?}   adds {anomaly} if unusual
+ * GET    /api/incomes        ?q&amp;from&amp;to&amp;source&amp;min&amp;max&amp;cursor&amp;limit
+ * POST   /api/incomes        {amount, source, date, currency?}
+ * GET    /api/budgets                                        adds {forecastSpent, overLimitProbability} until they end
+ * POST   /api/budgets        {category, limit, startDate, endDate, currency?}
+ * GET    /api/reminders      ?days (only reminders due within that many days) or ?q
+ * POST   /api/reminders      {title, date, time}
+ * </pre>
+ * <p>
+ * {@code q} searches the words of categories and payment methods, sources or
+ * titles by prefix, e.g. {@code q=ub} finds "Uber Eats".
+ * </p>
+ * <p>
+ * Listings come a page at a time; {@code nextCursor} is passed back as {@code cursor}
+ * to get the next page, and stays valid while records are added. Occurrences of
+ * recurring expenses and incomes are listed after the stored records, so their
+ * cursors are counted from the end of the stored records, e.g. {@code r12}.
+ * </p>
+ * <p>
+ * Amounts are in {@link ExchangeRates#BASE_CURRENCY} unless a {@code currency}
+ * with an exchange rate is given. A budget's spent and remaining amounts are in
+ * the budget's currency.
+ * </p>
+ */
+public class ApiServer {
+    public static final int DEFAULT_PORT = 8080;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final String RECURRING_CURSOR = "r";
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final UserManager users = new UserManager();
+    private final String[] legacyFiles;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    // Completed once the partition has loaded, so its files are read outside the map's locks
+    private final Map<String, CompletableFuture<Partition>> partitions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Creates a server listening on the loopback interface.
+     * @param port The port to listen on
+     * @param legacyFiles Files from before data was partitioned per user, adopted by the first user to log in
+     * @throws IOException if the port cannot be bound
+     */
+    public ApiServer(int port, String[] legacyFiles) throws IOException {
+        this.legacyFiles = legacyFiles;
+        http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = newRequestExecutor();
+        http.setExecutor(executor);
+        http.createContext("/api/users", exchange -> handle(exchange, this::users));
+        http.createContext("/api/sessions", exchange -> handle(exchange, this::sessions));
+        http.createContext("/api/expenses", exchange -> handle(exchange, this::expenses));
+        http.createContext("/api/incomes", exchange -> handle(exchange, this::incomes));
+        http.createContext("/api/budgets", exchange -> handle(exchange, this::budgets));
+        http.createContext("/api/reminders", exchange -> handle(exchange, this::reminders));
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        http.start();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return the bound port
+     */
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and saves every open partition and the users.
+     */
+    public void stop() {
+        http.stop(1);
+        executor.shutdown();
+        partitions.values().forEach(future -> {
+            Partition partition = future.getNow(null);
+            if (partition != null) partition.close();
+        });
+        users.checkpoint();
+    }
+
+    /**
+     * Creates the executor requests run on, which starts a new virtual thread per request.
+     */
+    private static ExecutorService newRequestExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    // ---- Endpoints ----
+
+    private Response users(Request request) {
+        request.requireMethod("POST");
+        Map<String, String> body = request.body();
+        String username = request.required(body, "username");
+        String password = request.required(body, "password");
+        String email = request.required(body, "email");
+        if (!Validators.isValidEmail(email)) throw new ApiException(400, "Invalid email format");
+        User user = users.register(username, password, email);
+        users.checkpoint();
+        if (user == null) throw new ApiException(409, "Username already taken");
+        return new Response(201, new Json.ObjectWriter().field("username", username).toString());
+    }
+
+    private Response sessions(Request request) {
+        if (request.method.equals("DELETE")) {
+            Session session = request.session();
+            if (sessions.remove(session.token) != null && session.partition.release()) {
+                forget(session.user.getUsername(), session.partition);
+            }
+            return new Response(204, null);
+        }
+        request.requireMethod("POST");
+        Map<String, String> body = request.body();
+        User user = users.authenticate(request.required(body, "username"), request.required(body, "password"));
+        if (user == null) throw new ApiException(401, "Invalid credentials");
+
+        Partition partition = acquire(user);
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(token, user, partition));
+        return new Response(201, new Json.ObjectWriter().field("token", token).toString());
+    }
+
+    /**
+     * Takes a session's hold on a user's partition, loading it if it is not open.
+     * Only the first of several concurrent logins loads the files; the others wait
+     * for it, without holding a lock of the partitions map.
+     */
+    private Partition acquire(User user) {
+        String name = user.getUsername();
+        while (true) {
+            CompletableFuture<Partition> created = new CompletableFuture<>();
+            CompletableFuture<Partition> open = partitions.putIfAbsent(name, created);
+            if (open == null) {
+                open = created;
+                try {
+                    created.complete(new Partition(user, legacyFiles));
+                } catch (RuntimeException e) {
+                    partitions.remove(name, created);
+                    created.completeExceptionally(e);
+                }
+            }
+            Partition partition;
+            try {
+                partition = open.join();
+            } catch (CompletionException e) {
+                throw new ApiException(500, "Could not load data: " + e.getCause().getMessage());
+            }
+            if (partition.acquire()) return partition;
+            partitions.remove(name, open); // Closed meanwhile; load it again
+        }
+    }
+
+    /**
+     * Removes a closed partition from the open ones, unless it was already replaced.
+     */
+    private void forget(String username, Partition partition) {
+        partitions.computeIfPresent(username, (name, open) -> (open.getNow(null) == partition) ? null : open);
+    }
+
+    private Response expenses(Request request) {
+        Partition partition = request.session().partition;
+        if (request.method.equals("POST")) {
+            Map<String, String> body = request.body();
+            Expense expense = Expense.ofCents(request.positive(body, "amount"), request.required(body, "category"),
+                    request.required(body, "method"), request.requiredDate(body, "date")).inCurrency(request.currency(body));
+            AnomalyDetector.Anomaly anomaly = partition.expenses.addExpense(expense);
+            if (anomaly == null) return new Response(201, toJson(expense));
+            return new Response(201, expenseWriter(expense).field("anomaly", anomaly.getReason()).toString());
+        }
+        request.requireMethod("GET");
+        LocalDate from = request.date(request.query.get("from"), "from");
+        LocalDate to = request.date(request.query.get("to"), "to");
+        Predicate<Expense> filter = Filters.dateRange(Expense::getDate, from, to)
+                .and(Filters.dictionaryText(Expense::getCategoryId, request.query.get("category")))
+                .and(Filters.amountRange(Expense::getAmount, request.number("min"), request.number("max")));
+        String search = request.query.get("q");
+        List<Expense> history = (search != null && !search.isEmpty()) ? partition.expenses.searchExpenses(search)
+                : partition.expenses.getExpensesThrough((to != null) ? to : LocalDate.now());
+        return request.page(history, filter, ApiServer::toJson);
+    }
+
+    private Response incomes(Request request) {
+        Partition partition = request.session().partition;
+        if (request.method.equals("POST")) {
+            Map<String, String> body = request.body();
+            Income income = Income.ofCents(request.positive(body, "amount"), request.required(body, "source"),
+                    request.requiredDate(body, "date")).inCurrency(request.currency(body));
+            partition.incomes.addIncome(income);
+            return new Response(201, toJson(income));
+        }
+        request.requireMethod("GET");
+        LocalDate from = request.date(request.query.get("from"), "from");
+        LocalDate to = request.date(request.query.get("to"), "to");
+        Predicate<Income> filter = Filters.dateRange(Income::getDate, from, to)
+                .and(Filters.dictionaryText(Income::getSourceId, request.query.get("source")))
+                .and(Filters.amountRange(Income::getAmount, request.number("min"), request.number("max")));
+        String search = request.query.get("q");
+        List<Income> history = (search != null && !search.isEmpty()) ? partition.incomes.searchIncomes(search)
+                : partition.incomes.getIncomesThrough((to != null) ? to : LocalDate.now());
+        return request.page(history, filter, ApiServer::toJson);
+    }
+
+    private Response budgets(Request request) {
+        Partition partition = request.session().partition;
+        if (request.method.equals("POST")) {
+            Map<String, String> body = request.body();
+            LocalDate start = request.date(body.get("startDate"), "startDate");
+            LocalDate end = request.date(body.get("endDate"), "endDate");
+            if (start == null || end == null) throw new ApiException(400, "Missing startDate or endDate");
+            if (!Validators.validateBudget(start, end)) throw new ApiException(400, "End date must be after start date");
+            Budget budget = Budget.ofCents(request.required(body, "category"), request.positive(body, "limit"), start, end)
+                    .inCurrency(request.currency(body));
+            partition.budgets.addBudget(budget);
+            return new Response(201, toJson(budget, partition.budgets.getSpentCents(budget), partition.budgets.getForecast(budget)));
+        }
+        request.requireMethod("GET");
+        List<String> items = new ArrayList<>();
+        for (Budget budget : partition.budgets.getBudgets()) {
+            items.add(toJson(budget, partition.budgets.getSpentCents(budget), partition.budgets.getForecast(budget)));
+        }
+        return new Response(200, Json.array(items));
+    }
+
+    private Response reminders(Request request) {
+        Partition partition = request.session().partition;
+        if (request.method.equals("POST")) {
+            Map<String, String> body = request.body();
+            String title = request.required(body, "title");
+            if (!Validators.isValidString(title, 3, 50)) throw new ApiException(400, "Title must be 3-50 characters");
+            LocalDate date = request.date(body.get("date"), "date");
+            LocalTime time;
+            try {
+                time = LocalTime.parse(request.required(body, "time"));
+            } catch (DateTimeParseException e) {
+                throw new ApiException(400, "Invalid time, use HH:mm");
+            }
+            if (date == null || !Validators.validateReminder(LocalDateTime.of(date, time))) {
+                throw new ApiException(400, "Reminder must be in the future");
+            }
+            Reminder reminder = new Reminder(title, date, time);
+            partition.reminders.addReminder(reminder);
+            return new Response(201, toJson(reminder));
+        }
+        request.requireMethod("GET");
+        String days = request.query.get("days");
+        String search = request.query.get("q");
+        List<String> items = new ArrayList<>();
+        List<Reminder> reminders;
+        if (search != null && !search.isEmpty()) {
+            reminders = partition.reminders.searchReminders(search);
+        } else if (days != null) {
+            LocalDateTime now = LocalDateTime.now();
+            reminders = partition.reminders.getUpcoming(now, now.plusDays(request.wholeNumber("days")));
+        } else {
+            reminders = partition.reminders.getReminders();
+        }
+        reminders.forEach(reminder -> items.add(toJson(reminder)));
+        return new Response(200, Json.array(items));
+    }
+
+    // ---- Representations ----
+
+    private static String toJson(Expense expense) {
+        return expenseWriter(expense).toString();
+    }
+
+    private static Json.ObjectWriter expenseWriter(Expense expense) {
+        return new Json.ObjectWriter().field("amount", expense.getAmount()).field("currency", expense.getCurrency())
+                .field("category", expense.getCategory())
+                .field("method", expense.getPaymentMethod()).field("date", expense.getDate().toString());
+    }
+
+    private static String toJson(Income income) {
+        return new Json.ObjectWriter().field("amount", income.getAmount()).field("currency", income.getCurrency())
+                .field("source", income.getSource())
+                .field("date", income.getDate().toString()).toString();
+    }
+
+    private static String toJson(Budget budget, long spentCents, BudgetForecaster.Forecast forecast) {
+        Json.ObjectWriter writer = new Json.ObjectWriter().field("category", budget.getCategory()).field("limit", budget.getLimit())
+                .field("currency", budget.getCurrency()).field("startDate", budget.getStartDate().toString()).field("endDate", budget.getEndDate().toString())
+                .field("spent", Money.toDouble(spentCents))
+                .field("remaining", Money.toDouble(budget.getLimitCents() - spentCents));
+        if (forecast != null) {
+            writer.field("forecastSpent", Money.toDouble(forecast.getMedianCents()))
+                    .field("overLimitProbability", forecast.getOverLimitProbability());
+        }
+        return writer.toString();
+    }
+
+    private static String toJson(Reminder reminder) {
+        return new Json.ObjectWriter().field("title", reminder.getTitle()).field("date", reminder.getDate().toString())
+                .field("time", reminder.getTime().toString()).field("fired", reminder.isFired()).toString();
+    }
+
+    // ---- Plumbing ----
+
+    /**
+     * Runs an endpoint and writes its response, turning failures into JSON errors.
+     */
+    private void handle(HttpExchange exchange, Function<Request, Response> endpoint) throws IOException {
+        Response response;
+        Request request = new Request(exchange);
+        try {
+            response = endpoint.apply(request);
+        } catch (ApiException e) {
+            response = error(e.getStatus(), e.getMessage());
+        } catch (RuntimeException e) {
+            response = error(500, "Internal error: " + e.getMessage());
+        } finally {
+            request.finish();
+        }
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (response.body == null) {
+                exchange.sendResponseHeaders(response.status, -1);
+                return;
+            }
+            byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(response.status, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, new Json.ObjectWriter().field("error", message).toString());
+    }
+
+    /**
+     * A logged-in client.
+     */
+    private static class Session {
+        final String token;
+        final User user;
+        final Partition partition;
+
+        Session(String token, User user, Partition partition) {
+            this.token = token;
+            this.user = user;
+            this.partition = partition;
+        }
+    }
+
+    /**
+     * The status and JSON body (or null for none) to answer with.
+     */
+    private static class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * One incoming request with helpers that validate its parameters.
+     */
+    private class Request {
+        final HttpExchange exchange;
+        final String method;
+        final Map<String, String> query;
+        private Session session; // the session whose partition this request has entered
+
+        Request(HttpExchange exchange) {
+            this.exchange = exchange;
+            this.method = exchange.getRequestMethod();
+            this.query = parseQuery(exchange.getRequestURI().getRawQuery());
+        }
+
+        void requireMethod(String expected) {
+            if (!method.equals(expected)) throw new ApiException(405, "Method not allowed");
+        }
+
+        /**
+         * Gets the caller's session and keeps its partition open until the request finishes.
+         */
+        Session session() {
+            if (session != null) return session;
+            String header = exchange.getRequestHeaders().getFirst("Authorization");
+            Session found = (header != null && header.startsWith("Bearer "))
+                    ? sessions.get(header.substring("Bearer ".length()).trim()) : null;
+            // The partition has closed if the session ended after it was looked up
+            if (found == null || !found.partition.enter()) throw new ApiException(401, "Missing or invalid session token");
+            session = found;
+            return session;
+        }
+
+        /**
+         * Lets go of the partition entered by {@link #session()}, closing it if its last session ended meanwhile.
+         */
+        void finish() {
+            if (session != null && session.partition.exit()) forget(session.user.getUsername(), session.partition);
+        }
+
+        Map<String, String> body() {
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+                if (bytes.length > MAX_BODY_BYTES) {
+                    throw new ApiException(413, "Request body is larger than " + MAX_BODY_BYTES + " bytes");
+                }
+                return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new ApiException(400, "Could not read request body");
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(400, "Invalid JSON: " + e.getMessage());
+            }
+        }
+
+        String required(Map<String, String> body, String name) {
+            String value = body.get(name);
+            if (value == null || value.trim().isEmpty()) throw new ApiException(400, "Missing " + name);
+            return value.trim();
+        }
+
+        long positive(Map<String, String> body, String name) {
+            try {
+                long cents = Money.parse(required(body, name));
+                if (Validators.validateTransaction(cents)) return cents;
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new ApiException(400, name + " must be a positive amount with at most two decimals");
+        }
+
+        String currency(Map<String, String> body) {
+            String value = body.get("currency");
+            if (value == null || value.trim().isEmpty()) return ExchangeRates.BASE_CURRENCY;
+            try {
+                String currency = ExchangeRates.normalize(value);
+                if (ExchangeRates.shared().isKnown(currency)) return currency;
+                throw new ApiException(400, "No exchange rate for " + currency);
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(400, e.getMessage());
+            }
+        }
+
+        LocalDate requiredDate(Map<String, String> body, String name) {
+            LocalDate date = date(body.get(name), name);
+            if (date == null) throw new ApiException(400, "Missing " + name);
+            if (!Validators.validateDate(date)) {
+                throw new ApiException(400, name + " must be between " + Validators.MIN_DATE + " and " + Validators.MAX_DATE);
+            }
+            return date;
+        }
+
+        LocalDate date(String value, String name) {
+            if (value == null || value.isEmpty()) return null;
+            try {
+                return LocalDate.parse(value);
+            } catch (DateTimeParseException e) {
+                throw new ApiException(400, "Invalid " + name + ", use YYYY-MM-DD");
+            }
+        }
+
+        Double number(String name) {
+            String value = query.get(name);
+            if (value == null || value.isEmpty()) return null;
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new ApiException(400, "Invalid " + name);
+            }
+        }
+
+        int wholeNumber(String name) {
+            try {
+                int value = Integer.parseInt(query.get(name));
+                if (value >= 0) return value;
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new ApiException(400, name + " must be a whole number");
+        }
+
+        /**
+         * Answers with one page of records, starting at the {@code cursor} parameter.
+         */
+        <T> Response page(List<T> records, Predicate<T> filter, Function<T, String> format) {
+            int storedSize = (records instanceof RecurrenceView) ? ((RecurrenceView<?>) records).getStoredSize() : records.size();
+            int cursor = query.containsKey("cursor") ? cursor(storedSize) : 0;
+            int limit = query.containsKey("limit") ? wholeNumber("limit") : PagedView.DEFAULT_PAGE_SIZE;
+            limit = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            PagedView.Page<T> page = new PagedView<>(records, filter, format, limit).fetch(cursor);
+            List<String> items = new ArrayList<>(page.getRows().size());
+            page.getRows().forEach(record -> items.add(format.apply(record)));
+            int next = page.getNextCursor();
+            String nextCursor = !page.hasNext() ? null
+                    : (next < storedSize) ? Integer.toString(next) : RECURRING_CURSOR + (next - storedSize);
+            return new Response(200, new Json.ObjectWriter().raw("items", Json.array(items))
+                    .field("nextCursor", nextCursor).toString());
+        }
+
+        /**
+         * Reads the {@code cursor} parameter as a position in the records. Stored
+         * records only grow at the end, so their positions are sent as they are.
+         * Occurrences of recurring records follow the stored ones and move on as
+         * records are stored, so they are sent as {@code r<n>}, the n-th occurrence,
+         * and placed after however many records are stored now.
+         */
+        private int cursor(int storedSize) {
+            String value = query.get("cursor");
+            if (value == null || !value.startsWith(RECURRING_CURSOR)) return wholeNumber("cursor");
+            try {
+                int occurrence = Integer.parseInt(value.substring(RECURRING_CURSOR.length()));
+                if (occurrence >= 0) return storedSize + occurrence;
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new ApiException(400, "Invalid cursor");
+        }
+
+        private Map<String, String> parseQuery(String raw) {
+            Map<String, String> params = new HashMap<>();
+            if (raw == null) return params;
+            for (String pair : raw.split("&")) {
+                int equals = pair.indexOf('=');
+                String name = (equals < 0) ? pair : pair.substring(0, equals);
+                String value = (equals < 0) ? "" : pair.substring(equals + 1);
+                params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+            return params;
+        }
+    }
+}
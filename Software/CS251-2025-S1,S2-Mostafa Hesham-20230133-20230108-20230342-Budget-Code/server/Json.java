@@ -0,0 +1,232 @@
+package server;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for the API server.
+ * <p>
+ * Requests are flat objects whose values are strings, numbers, booleans or null,
+ * which is all the API accepts, so the parser returns each value as its text.
+ * Responses are written with {@link ObjectWriter}.
+ * </p>
+ */
+public class Json {
+
+    /**
+     * Parses a flat JSON object.
+     * @param text The JSON text
+     * @return the fields of the object, with every value as a string (null for JSON null)
+     * @throws IllegalArgumentException if the text is not a flat JSON object
+     */
+    public static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> fields = parser.object();
+        parser.skipWhitespace();
+        if (parser.position != text.length()) throw parser.error("Unexpected trailing content");
+        return fields;
+    }
+
+    /**
+     * Quotes and escapes a string.
+     * @param value The string to quote, or null
+     * @return the JSON string literal, or {@code null}
+     */
+    public static String quote(String value) {
+        if (value == null) return "null";
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    /**
+     * Joins already-encoded JSON values into an array.
+     * @param items The encoded values
+     * @return the JSON array
+     */
+    public static String array(List<String> items) {
+        return "[" + String.join(",", items) + "]";
+    }
+
+    /**
+     * Writes a JSON object one field at a time.
+     */
+    public static class ObjectWriter {
+        private final StringBuilder out = new StringBuilder("{");
+
+        /**
+         * Adds a string field.
+         * @param name The field name
+         * @param value The value, or null
+         * @return this writer
+         */
+        public ObjectWriter field(String name, String value) {
+            return raw(name, quote(value));
+        }
+
+        /**
+         * Adds a number field.
+         * @param name The field name
+         * @param value The value
+         * @return this writer
+         */
+        public ObjectWriter field(String name, double value) {
+            return raw(name, Double.isFinite(value) ? Double.toString(value) : "null");
+        }
+
+        /**
+         * Adds a boolean field.
+         * @param name The field name
+         * @param value The value
+         * @return this writer
+         */
+        public ObjectWriter field(String name, boolean value) {
+            return raw(name, Boolean.toString(value));
+        }
+
+        /**
+         * Adds a whole number field.
+         * @param name The field name
+         * @param value The value
+         * @return this writer
+         */
+        public ObjectWriter field(String name, long value) {
+            return raw(name, Long.toString(value));
+        }
+
+        /**
+         * Adds a field whose value is already encoded as JSON.
+         * @param name The field name
+         * @param json The encoded value
+         * @return this writer
+         */
+        public ObjectWriter raw(String name, String json) {
+            if (out.length() > 1) out.append(',');
+            out.append(quote(name)).append(':').append(json);
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return out + "}";
+        }
+    }
+
+    private static class Parser {
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Map<String, String> object() {
+            Map<String, String> fields = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return fields;
+            }
+            while (true) {
+                skipWhitespace();
+                String name = string();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                fields.put(name, value());
+                skipWhitespace();
+                char next = next();
+                if (next == '}') return fields;
+                if (next != ',') throw error("Expected ',' or '}'");
+            }
+        }
+
+        String value() {
+            char c = peek();
+            if (c == '"') return string();
+            if (c == '{' || c == '[') throw error("Nested values are not supported");
+            int start = position;
+            while (position < text.length() && ",} \t\r\n".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.equals("null")) return null;
+            if (literal.equals("true") || literal.equals("false")) return literal;
+            if (!literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) throw error("Invalid value");
+            return literal;
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder out = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') return out.toString();
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case 'n': out.append('\n'); break;
+                    case 'r': out.append('\r'); break;
+                    case 't': out.append('\t'); break;
+                    case 'b': out.append('\b'); break;
+                    case 'f': out.append('\f'); break;
+                    case 'u':
+                        if (position + 4 > text.length()) throw error("Invalid escape");
+                        try {
+                            out.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid escape");
+                        }
+                        position += 4;
+                        break;
+                    default: out.append(escaped);
+                }
+            }
+        }
+
+        void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private void expect(char c) {
+            if (next() != c) throw error("Expected '" + c + "'");
+        }
+
+        private char peek() {
+            if (position >= text.length()) throw error("Unexpected end of input");
+            return text.charAt(position);
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position);
+        }
+    }
+}
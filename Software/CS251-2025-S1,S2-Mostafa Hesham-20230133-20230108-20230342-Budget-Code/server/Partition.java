@@ -0,0 +1,109 @@
+package server;
+
+import entities.User;
+import managers.BudgetManager;
+import managers.ExpenseManager;
+import managers.IncomeManager;
+import managers.ReminderManager;
+import utils.Metrics;
+import utils.SerializationHelper;
+
+/**
+ * The managers of one user's data partition, shared by all of that user's sessions.
+ * <p>
+ * Managers are thread-safe, so request handlers use them without locking; only
+ * saving and closing the partition as a whole is serialized.
+ * </p>
+ * <p>
+ * The partition counts the sessions that hold it and the requests using it right
+ * now. It closes once both are zero, so a logout never closes the managers under
+ * a request that is still running, and a login while the last request finishes
+ * keeps the partition open instead of loading a second copy of the same files.
+ * </p>
+ */
+class Partition {
+    final ExpenseManager expenses;
+    final IncomeManager incomes;
+    final BudgetManager budgets;
+    final ReminderManager reminders;
+    private final String directory;
+    private int sessions;  // guarded by this
+    private int inFlight;  // guarded by this
+    private boolean closed; // guarded by this
+
+    Partition(User user, String[] legacyFiles) {
+        directory = SerializationHelper.getUserDirectory(user.getUsername());
+        SerializationHelper.adoptLegacyFiles(directory, legacyFiles);
+        expenses = new ExpenseManager(directory);
+        incomes = new IncomeManager(directory);
+        budgets = new BudgetManager(directory, expenses);
+        reminders = new ReminderManager(directory);
+    }
+
+    /**
+     * Adds a session's hold on the partition.
+     * @return false if the partition has already closed and must be loaded again
+     */
+    synchronized boolean acquire() {
+        if (closed) return false;
+        sessions++;
+        return true;
+    }
+
+    /**
+     * Drops a session's hold on the partition, closing it if nothing else uses it.
+     * @return true if the partition closed
+     */
+    synchronized boolean release() {
+        sessions--;
+        return closeIfUnused();
+    }
+
+    /**
+     * Marks the start of a request that uses the partition.
+     * @return false if the partition has already closed
+     */
+    synchronized boolean enter() {
+        if (closed) return false;
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Marks the end of a request started with {@link #enter()}, closing the
+     * partition if its last session ended meanwhile.
+     * @return true if the partition closed
+     */
+    synchronized boolean exit() {
+        inFlight--;
+        return closeIfUnused();
+    }
+
+    private boolean closeIfUnused() {
+        if (sessions > 0 || inFlight > 0 || closed) return false;
+        close();
+        return true;
+    }
+
+    /**
+     * Saves every manager whose data changed since its last checkpoint.
+     */
+    synchronized void checkpoint() {
+        expenses.checkpoint();
+        incomes.checkpoint();
+        budgets.checkpoint();
+        reminders.checkpoint();
+    }
+
+    /**
+     * Stops firing reminders, saves everything and drops the partition's gauges.
+     * Does nothing if the partition is already closed.
+     */
+    synchronized void close() {
+        if (closed) return;
+        closed = true;
+        reminders.close();
+        checkpoint();
+        Metrics.removeGauges(directory);
+    }
+}
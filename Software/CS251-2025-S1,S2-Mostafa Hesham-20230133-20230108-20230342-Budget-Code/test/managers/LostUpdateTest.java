@@ -0,0 +1,107 @@
+package managers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import entities.Expense;
+import entities.Income;
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import utils.ConcurrentTasks;
+
+/**
+ * Adds records to the managers from many threads while others read them, then
+ * reloads the partition and checks that no update was lost. Each round starts a
+ * fresh partition and adds enough records for its log to be compacted a few
+ * times, so snapshots written while other threads insert are covered too.
+ */
+class LostUpdateTest {
+    private static final int ROUNDS = 10;
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 500;
+    private static final int BATCH_SIZE = 50;
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+
+    @Test
+    void expensesAddedFromManyThreadsAreAllSaved() throws InterruptedException {
+        for (int round = 0; round < ROUNDS; round++) {
+            addExpensesConcurrently("lost-update-expenses-" + round + File.separator);
+        }
+    }
+
+    @Test
+    void incomesAddedFromManyThreadsAreAllSaved() throws InterruptedException {
+        for (int round = 0; round < ROUNDS; round++) {
+            addIncomesConcurrently("lost-update-incomes-" + round + File.separator);
+        }
+    }
+
+    @Test
+    void eachUsernameIsRegisteredOnce() throws InterruptedException {
+        UserManager users = new UserManager();
+        int usernames = 2_000;
+        AtomicInteger registered = new AtomicInteger();
+        ConcurrentTasks.run(THREADS, thread -> {
+            for (int i = 0; i < usernames; i++) {
+                if (users.register("racer" + i, "secret", "racer@example.com") != null) registered.incrementAndGet();
+            }
+        });
+        assertEquals(usernames, registered.get(), "usernames registered");
+    }
+
+    /**
+     * Adds single expenses and batches from half the threads each while another thread reads them.
+     */
+    private static void addExpensesConcurrently(String directory) throws InterruptedException {
+        ExpenseManager manager = new ExpenseManager(directory);
+        ConcurrentTasks.run(THREADS + 1, thread -> {
+            if (thread == THREADS) {
+                int last = 0;
+                while (last < THREADS * PER_THREAD) {
+                    int size = manager.getExpenses().size();
+                    if (size < last) throw new AssertionError("Expenses shrank from " + last + " to " + size);
+                    last = size;
+                }
+            } else if (thread % 2 == 0) {
+                for (int i = 0; i < PER_THREAD; i++) {
+                    manager.addExpense(new Expense(1, "Stress", "Thread " + thread, START.plusDays(i % 28)));
+                }
+            } else {
+                for (int first = 0; first < PER_THREAD; first += BATCH_SIZE) {
+                    List<Expense> batch = new ArrayList<>(BATCH_SIZE);
+                    for (int i = first; i < first + BATCH_SIZE; i++) {
+                        batch.add(new Expense(1, "Stress", "Thread " + thread, START.plusDays(i % 28)));
+                    }
+                    manager.addExpenses(batch);
+                }
+            }
+        });
+
+        int expected = THREADS * PER_THREAD;
+        assertEquals(expected, manager.getExpenses().size(), "expenses in memory");
+        List<Expense> reloaded = new ExpenseManager(directory).getExpenses();
+        assertEquals(expected, reloaded.size(), "expenses after reloading");
+        assertEquals(expected * 100L, reloaded.stream().mapToLong(Expense::getAmountCents).sum(), "total after reloading");
+    }
+
+    /**
+     * Adds incomes one at a time from every thread.
+     */
+    private static void addIncomesConcurrently(String directory) throws InterruptedException {
+        IncomeManager manager = new IncomeManager(directory);
+        ConcurrentTasks.run(THREADS, thread -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                manager.addIncome(new Income(1, "Thread " + thread, START.plusDays(i % 28)));
+            }
+        });
+
+        int expected = THREADS * PER_THREAD;
+        assertEquals(expected, manager.getIncomes().size(), "incomes in memory");
+        List<Income> reloaded = new IncomeManager(directory).getIncomes();
+        assertEquals(expected, reloaded.size(), "incomes after reloading");
+        assertEquals(expected * 100L, reloaded.stream().mapToLong(Income::getAmountCents).sum(), "total after reloading");
+    }
+}
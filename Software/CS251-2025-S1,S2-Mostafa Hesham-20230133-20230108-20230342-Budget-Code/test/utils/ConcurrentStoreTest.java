@@ -0,0 +1,81 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that records added to a {@link ConcurrentStore} from many threads are all
+ * published, each exactly once, and that snapshots taken meanwhile never shrink.
+ */
+class ConcurrentStoreTest {
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 100_000;
+
+    @Test
+    void addsFromManyThreadsArePublishedExactlyOnce() throws InterruptedException {
+        ConcurrentStore<Integer> store = new ConcurrentStore<>();
+        ConcurrentTasks.run(THREADS, thread -> {
+            for (int i = 0; i < PER_THREAD; i++) store.add(thread * PER_THREAD + i);
+        });
+        assertExactlyOnce(store.snapshot(), THREADS * PER_THREAD);
+    }
+
+    @Test
+    void batchesFromManyThreadsArePublishedExactlyOnce() throws InterruptedException {
+        ConcurrentStore<Integer> store = new ConcurrentStore<>();
+        int batchSize = 100;
+        ConcurrentTasks.run(THREADS, thread -> {
+            for (int first = 0; first < PER_THREAD; first += batchSize) {
+                List<Integer> batch = new ArrayList<>(batchSize);
+                for (int i = first; i < first + batchSize; i++) batch.add(thread * PER_THREAD + i);
+                store.addAll(batch);
+            }
+        });
+        assertExactlyOnce(store.snapshot(), THREADS * PER_THREAD);
+    }
+
+    @Test
+    void snapshotsNeverShrinkWhileWritersAdd() throws InterruptedException {
+        ConcurrentStore<Integer> store = new ConcurrentStore<>();
+        ConcurrentTasks.run(THREADS, thread -> {
+            if (thread == 0) {
+                int last = 0;
+                while (last < (THREADS - 1) * PER_THREAD) {
+                    List<Integer> snapshot = store.snapshot();
+                    if (snapshot.size() < last) throw new AssertionError("Snapshot shrank from " + last + " to " + snapshot.size());
+                    last = snapshot.size();
+                }
+            } else {
+                for (int i = 0; i < PER_THREAD; i++) store.add((thread - 1) * PER_THREAD + i);
+            }
+        });
+        assertExactlyOnce(store.snapshot(), (THREADS - 1) * PER_THREAD);
+    }
+
+    @Test
+    void snapshotWithPutsPendingRecordsAfterPublishedOnes() {
+        ConcurrentStore<Integer> store = new ConcurrentStore<>();
+        store.addAll(List.of(0, 1, 2));
+        assertEquals(List.of(0, 1, 2, 3, 4), store.snapshotWith(List.of(3, 4)));
+        assertEquals(3, store.size());
+    }
+
+    /**
+     * Checks that a list holds each of the values 0 to count - 1 exactly once.
+     */
+    private static void assertExactlyOnce(List<Integer> values, int count) {
+        BitSet seen = new BitSet(count);
+        int duplicates = 0;
+        for (Integer value : values) {
+            if (seen.get(value)) duplicates++;
+            seen.set(value);
+        }
+        assertEquals(count, values.size(), "records published");
+        assertEquals(0, duplicates, "records published twice");
+        assertEquals(count, seen.cardinality(), "distinct records published");
+    }
+}
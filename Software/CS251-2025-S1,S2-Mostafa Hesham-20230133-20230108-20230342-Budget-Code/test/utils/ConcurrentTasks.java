@@ -0,0 +1,46 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs a task on several threads that all start at the same moment, for the concurrency tests.
+ */
+public final class ConcurrentTasks {
+    private ConcurrentTasks() {
+    }
+
+    /**
+     * Runs a task on several threads at once and waits for all of them.
+     * @param threads The number of threads
+     * @param task The task, given the index of the thread running it
+     * @throws AssertionError if the task threw on any thread, with the first failure as its cause
+     */
+    public static void run(int threads, IntConsumer task) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    ready.await();
+                    task.accept(thread);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        ready.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (!failures.isEmpty()) throw new AssertionError(failures.size() + " thread(s) failed", failures.get(0));
+    }
+}
@@ -0,0 +1,59 @@
+package utils;
+
+import java.util.function.Supplier;
+
+/**
+ * Tracks whether a manager's state changed since it was last saved.
+ * <p>
+ * Managers mark the checkpoint dirty whenever they modify their data and call
+ * {@link #flush()} at safe points (leaving a menu, logging out, exiting). A flush
+ * only writes the file when something actually changed, and the write itself goes
+ * through {@link SerializationHelper#saveObject(Object, String)}, which replaces
+ * the old file atomically. Flushes are serialized, so a background save and a
+ * save at a safe point never write the same file at once.
+ * </p>
+ */
+public class Checkpoint {
+    private final String filename;
+    private final Supplier<Object> state;
+    private volatile boolean dirty;
+
+    /**
+     * Creates a checkpoint for one data file.
+     * @param filename The name of the file the state is saved to
+     * @param state Supplies the object to save
+     */
+    public Checkpoint(String filename, Supplier<Object> state) {
+        this.filename = filename;
+        this.state = state;
+    }
+
+    /**
+     * Marks the state as changed since the last save.
+     */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Checks whether the state changed since the last save.
+     * @return true if there are unsaved changes, false otherwise
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Saves the state if it changed since the last save.
+     * @return true if the file is up to date, false if saving failed
+     */
+    public synchronized boolean flush() {
+        if (!dirty) return true;
+        // Cleared before saving so that a change made during the save marks it dirty again
+        dirty = false;
+        // The ids the state refers to must be on disk before the state is
+        if (StringDictionary.shared().flush() && SerializationHelper.saveObject(state.get(), filename)) return true;
+        dirty = true;
+        return false;
+    }
+}
@@ -0,0 +1,338 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Columnar binary store for amount/currency/date/category records.
+ * <p>
+ * Each column lives in its own file of primitives: amounts as cents (see
+ * {@link Money}), dates as epoch days, and currencies and categories as ids into
+ * the shared {@link StringDictionary}. The columns are memory-mapped for reading,
+ * so totals scan the raw values without deserializing any objects and without
+ * copying the history onto the heap. A scan bulk-copies a fixed window of rows
+ * at a time out of the mapped buffers into small scratch arrays and sums them in
+ * loops the JIT can vectorize, so the heap used stays the same however long the
+ * history grows. Totals in cents are exact however many rows are summed.
+ * Totals are in the base currency. The kernels sum every row of a window as it
+ * is, then the rows of the window in other currencies are taken back out and
+ * converted per (currency, day) with a {@link CurrencyTotal}.
+ * Appends and scans are serialized, so the store can be shared between threads.
+ * </p>
+ */
+public class ColumnStore {
+    private static final String CENTS_COLUMN = ".cents.col";
+    private static final String CURRENCY_COLUMN = ".currency.col";
+    private static final String DAY_COLUMN = ".day.col";
+    private static final String CATEGORY_COLUMN = ".category.col";
+    // Per-store category table used before categories moved to the shared dictionary
+    private static final String LEGACY_CATEGORY_TABLE = ".categories.ser";
+    // Amounts as doubles, used before amounts were kept in cents
+    private static final String LEGACY_AMOUNT_COLUMN = ".amount.col";
+    private static final int WINDOW = 8192;
+
+    private final String name;
+    private int size;
+
+    private LongBuffer cents;
+    private IntBuffer currencies;
+    private IntBuffer days;
+    private IntBuffer categories;
+    private int mappedSize = -1;
+
+    // Scratch arrays one window of rows is copied into, allocated on the first scan
+    private long[] centsWindow;
+    private int[] currencyWindow;
+    private int[] dayWindow;
+    private int[] categoryWindow;
+
+    /**
+     * Opens the store with the given name, trimming any column left longer than
+     * the others by an interrupted append. Columns written with the old per-store
+     * category ids or with amounts as doubles are emptied so the owner rebuilds
+     * them, as are columns from before records had a currency, which have no
+     * currency column to match the others.
+     * @param name The base name of the column files in the data directory
+     */
+    public ColumnStore(String name) {
+        this.name = name;
+        File legacyTable = SerializationHelper.getDataFile(name + LEGACY_CATEGORY_TABLE);
+        File legacyAmounts = column(LEGACY_AMOUNT_COLUMN);
+        if (legacyTable.exists() || legacyAmounts.exists()) {
+            trim(CENTS_COLUMN, 0);
+            trim(CURRENCY_COLUMN, 0);
+            trim(DAY_COLUMN, 0);
+            trim(CATEGORY_COLUMN, 0);
+            legacyTable.delete();
+            legacyAmounts.delete();
+        }
+
+        long rows = Math.min(Math.min(column(CENTS_COLUMN).length() / Long.BYTES,
+                column(CURRENCY_COLUMN).length() / Integer.BYTES),
+                Math.min(column(DAY_COLUMN).length() / Integer.BYTES,
+                        column(CATEGORY_COLUMN).length() / Integer.BYTES));
+        size = (int) rows;
+        trim(CENTS_COLUMN, rows * Long.BYTES);
+        trim(CURRENCY_COLUMN, rows * Integer.BYTES);
+        trim(DAY_COLUMN, rows * Integer.BYTES);
+        trim(CATEGORY_COLUMN, rows * Integer.BYTES);
+    }
+
+    /**
+     * Gets the number of rows in the store.
+     * @return the row count
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Appends one row to every column.
+     * @param amountCents The amount of the record in cents of its currency
+     * @param currencyId The dictionary id of the currency of the record
+     * @param date The date of the record
+     * @param categoryId The dictionary id of the category of the record
+     * @return true if successful, false otherwise
+     */
+    public synchronized boolean append(long amountCents, int currencyId, LocalDate date, int categoryId) {
+        try {
+            write(CENTS_COLUMN, ByteBuffer.allocate(Long.BYTES).putLong(amountCents), true);
+            write(CURRENCY_COLUMN, ByteBuffer.allocate(Integer.BYTES).putInt(currencyId), true);
+            write(DAY_COLUMN, ByteBuffer.allocate(Integer.BYTES).putInt((int) date.toEpochDay()), true);
+            write(CATEGORY_COLUMN, ByteBuffer.allocate(Integer.BYTES).putInt(categoryId), true);
+            size++;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error appending to column store: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Appends a batch of rows, writing each column once.
+     * @param records The records to append
+     * @param amountCents Extracts the amount of a record in cents of its currency
+     * @param currency Extracts the dictionary id of the currency of a record
+     * @param date Extracts the date of a record
+     * @param category Extracts the dictionary id of the category of a record
+     * @param <T> The record type
+     * @return true if successful, false otherwise
+     */
+    public synchronized <T> boolean appendAll(List<T> records, ToLongFunction<T> amountCents, ToIntFunction<T> currency,
+                                 Function<T, LocalDate> date, ToIntFunction<T> category) {
+        return writeRows(records, amountCents, currency, date, category, true);
+    }
+
+    /**
+     * Rewrites every column from a list of records.
+     * Used when the columns are missing or out of step with the record log.
+     * @param records The records to store
+     * @param amountCents Extracts the amount of a record in cents of its currency
+     * @param currency Extracts the dictionary id of the currency of a record
+     * @param date Extracts the date of a record
+     * @param category Extracts the dictionary id of the category of a record
+     * @param <T> The record type
+     * @return true if successful, false otherwise
+     */
+    public synchronized <T> boolean rebuild(List<T> records, ToLongFunction<T> amountCents, ToIntFunction<T> currency,
+                               Function<T, LocalDate> date, ToIntFunction<T> category) {
+        return writeRows(records, amountCents, currency, date, category, false);
+    }
+
+    private <T> boolean writeRows(List<T> records, ToLongFunction<T> amountCents, ToIntFunction<T> currency,
+                                  Function<T, LocalDate> date, ToIntFunction<T> category, boolean append) {
+        ByteBuffer amountBytes = ByteBuffer.allocate(records.size() * Long.BYTES);
+        ByteBuffer currencyBytes = ByteBuffer.allocate(records.size() * Integer.BYTES);
+        ByteBuffer dayBytes = ByteBuffer.allocate(records.size() * Integer.BYTES);
+        ByteBuffer categoryBytes = ByteBuffer.allocate(records.size() * Integer.BYTES);
+        for (T record : records) {
+            amountBytes.putLong(amountCents.applyAsLong(record));
+            currencyBytes.putInt(currency.applyAsInt(record));
+            dayBytes.putInt((int) date.apply(record).toEpochDay());
+            categoryBytes.putInt(category.applyAsInt(record));
+        }
+        try {
+            write(CENTS_COLUMN, amountBytes, append);
+            write(CURRENCY_COLUMN, currencyBytes, append);
+            write(DAY_COLUMN, dayBytes, append);
+            write(CATEGORY_COLUMN, categoryBytes, append);
+            size = append ? size + records.size() : records.size();
+            mappedSize = -1;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error writing column store: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Sums the amount column.
+     * @return the total of all amounts in cents of the base currency
+     */
+    public synchronized long total() {
+        if (!map()) return 0;
+        long total = 0;
+        CurrencyTotal foreign = new CurrencyTotal();
+        for (int from = 0; from < size; from += WINDOW) {
+            int rows = Math.min(WINDOW, size - from);
+            cents.get(from, centsWindow, 0, rows);
+            currencies.get(from, currencyWindow, 0, rows);
+            total += Money.sum(centsWindow, 0, rows);
+            total -= moveForeign(from, rows, foreign);
+        }
+        return total + foreign.toBase();
+    }
+
+    /**
+     * Sums the amounts of rows dated within a period.
+     * @param from The first day of the period (inclusive)
+     * @param to The last day of the period (inclusive)
+     * @return the total of matching amounts in cents of the base currency
+     */
+    public synchronized long totalBetween(LocalDate from, LocalDate to) {
+        if (!map()) return 0;
+        int first = (int) from.toEpochDay();
+        int last = (int) to.toEpochDay();
+        int baseCurrencyId = ExchangeRates.shared().getBaseCurrencyId();
+        long total = 0;
+        CurrencyTotal foreign = new CurrencyTotal();
+        for (int start = 0; start < size; start += WINDOW) {
+            int rows = Math.min(WINDOW, size - start);
+            cents.get(start, centsWindow, 0, rows);
+            currencies.get(start, currencyWindow, 0, rows);
+            days.get(start, dayWindow, 0, rows);
+            total += Money.sumBetween(centsWindow, dayWindow, rows, first, last);
+            for (int j = 0; j < rows; j++) {
+                if (currencyWindow[j] != baseCurrencyId && dayWindow[j] >= first && dayWindow[j] <= last) {
+                    total -= centsWindow[j];
+                    foreign.add(currencyWindow[j], dayWindow[j], centsWindow[j]);
+                }
+            }
+        }
+        return total + foreign.toBase();
+    }
+
+    /**
+     * Sums the amounts per category.
+     * @return category totals in cents of the base currency, in dictionary id order
+     */
+    public synchronized Map<String, Long> totalsByCategory() {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        if (!map()) return totals;
+        StringDictionary dictionary = StringDictionary.shared();
+        int baseCurrencyId = ExchangeRates.shared().getBaseCurrencyId();
+        long[] sums = new long[dictionary.size()];
+        Map<Integer, CurrencyTotal> foreign = new HashMap<>();
+        for (int start = 0; start < size; start += WINDOW) {
+            int rows = Math.min(WINDOW, size - start);
+            cents.get(start, centsWindow, 0, rows);
+            currencies.get(start, currencyWindow, 0, rows);
+            categories.get(start, categoryWindow, 0, rows);
+            for (int j = 0; j < rows; j++) {
+                sums[categoryWindow[j]] += centsWindow[j];
+            }
+            for (int j = 0; j < rows; j++) {
+                if (currencyWindow[j] != baseCurrencyId) {
+                    sums[categoryWindow[j]] -= centsWindow[j];
+                    foreign.computeIfAbsent(categoryWindow[j], id -> new CurrencyTotal())
+                            .add(currencyWindow[j], days.get(start + j), centsWindow[j]);
+                }
+            }
+        }
+        foreign.forEach((id, total) -> sums[id] += total.toBase());
+        for (int id = 0; id < sums.length; id++) {
+            if (sums[id] != 0) {
+                totals.put(dictionary.valueOf(id), sums[id]);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Adds the rows of the current window that are not in the base currency to a
+     * foreign total, reading their days from the mapped column.
+     * @return the sum of those rows as they were counted by the kernel
+     */
+    private long moveForeign(int start, int rows, CurrencyTotal foreign) {
+        int baseCurrencyId = ExchangeRates.shared().getBaseCurrencyId();
+        long moved = 0;
+        for (int j = 0; j < rows; j++) {
+            if (currencyWindow[j] != baseCurrencyId) {
+                moved += centsWindow[j];
+                foreign.add(currencyWindow[j], days.get(start + j), centsWindow[j]);
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Maps the columns for reading, remapping them if rows were appended since the last scan.
+     * @return true if the columns are mapped, false otherwise
+     */
+    private boolean map() {
+        if (mappedSize == size) return true;
+        try {
+            cents = mapColumn(CENTS_COLUMN, (long) size * Long.BYTES).asLongBuffer();
+            currencies = mapColumn(CURRENCY_COLUMN, (long) size * Integer.BYTES).asIntBuffer();
+            days = mapColumn(DAY_COLUMN, (long) size * Integer.BYTES).asIntBuffer();
+            categories = mapColumn(CATEGORY_COLUMN, (long) size * Integer.BYTES).asIntBuffer();
+        } catch (IOException e) {
+            System.err.println("Error mapping column store: " + e.getMessage());
+            return false;
+        }
+        if (centsWindow == null) {
+            centsWindow = new long[WINDOW];
+            currencyWindow = new int[WINDOW];
+            dayWindow = new int[WINDOW];
+            categoryWindow = new int[WINDOW];
+        }
+        mappedSize = size;
+        return true;
+    }
+
+    private ByteBuffer mapColumn(String suffix, long length) throws IOException {
+        File file = column(suffix);
+        if (!file.exists()) return ByteBuffer.allocate(0);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+    }
+
+    private void write(String suffix, ByteBuffer bytes, boolean append) throws IOException {
+        bytes.flip();
+        StandardOpenOption mode = append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        try (FileChannel channel = FileChannel.open(column(suffix).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    private void trim(String suffix, long length) {
+        File file = column(suffix);
+        if (file.length() <= length) return;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        } catch (IOException e) {
+            System.err.println("Error trimming column: " + e.getMessage());
+        }
+    }
+
+    private File column(String suffix) {
+        return SerializationHelper.getDataFile(name + suffix);
+    }
+}
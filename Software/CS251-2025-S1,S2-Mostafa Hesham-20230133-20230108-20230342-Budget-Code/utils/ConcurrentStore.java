@@ -0,0 +1,186 @@
+package utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Append-only record store that many threads can add to and read from at once.
+ * <p>
+ * Records live in fixed-size chunks that are never moved or overwritten, so a
+ * writer reserves its slots with a single atomic increment and fills them
+ * without taking a lock. Records become visible in slot order: after filling
+ * its slots, every writer moves the published size forward over all the slots
+ * that are filled, including other writers' slots. A writer therefore never
+ * waits for a slower one, and the published records never have gaps. Only
+ * allocating a new chunk takes a lock, once every {@value #CHUNK_SIZE} records.
+ * </p>
+ * <p>
+ * Readers take a {@link #snapshot()}: a read-only list of the records published
+ * at that moment. A snapshot never changes, however many records are added
+ * while it is being iterated, and taking one costs nothing more than two reads.
+ * </p>
+ *
+ * @param <T> the type of record stored; records must not be null
+ */
+public class ConcurrentStore<T> {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicInteger published = new AtomicInteger();
+    // Replaced, never modified, when a chunk is added, so readers can use it without locking
+    private volatile AtomicReferenceArray<Object>[] chunks = newDirectory(0);
+
+    /**
+     * Adds a record at the end of the store.
+     * @param record The record to add
+     */
+    public void add(T record) {
+        int slot = reserve(1);
+        chunkFor(slot).set(slot & CHUNK_MASK, record);
+        advance();
+    }
+
+    /**
+     * Adds a batch of records at the end of the store, in order and next to each other.
+     * The batch is filled from its last slot to its first, so publishing does not
+     * stop halfway through it while the rest is still being written.
+     * @param records The records to add
+     */
+    public void addAll(Collection<? extends T> records) {
+        if (records.isEmpty()) return;
+        Object[] batch = records.toArray();
+        int first = reserve(batch.length);
+        for (int i = batch.length - 1; i >= 0; i--) {
+            int slot = first + i;
+            chunkFor(slot).set(slot & CHUNK_MASK, batch[i]);
+        }
+        advance();
+    }
+
+    /**
+     * Gets the number of published records.
+     * @return the record count
+     */
+    public int size() {
+        return published.get();
+    }
+
+    /**
+     * Gets the records published so far as a list that does not change afterwards.
+     * @return a read-only snapshot of the store
+     */
+    public List<T> snapshot() {
+        int size = published.get();
+        return new Snapshot<>(chunks, size);
+    }
+
+    /**
+     * Gets the records published so far followed by records that are about to be
+     * added, e.g. to persist a batch before it is published.
+     * <p>
+     * The view is only the store as it will be once the pending records are added
+     * if no other writer adds anything in between. Unlike the rest of the class this
+     * needs a lock: the caller must hold the same lock around this call and the
+     * {@link #addAll(Collection)} that follows, and every other writer of the store
+     * must take it too, as the managers do with {@code synchronized} on their log.
+     * Without it, records another thread adds in between are missing from the view,
+     * and a snapshot file written from it would lose them.
+     * </p>
+     * @param pending The records that will be added next, in order
+     * @return a read-only view of the store with the pending records at the end
+     */
+    public List<T> snapshotWith(List<T> pending) {
+        return new Snapshot<>(chunks, published.get(), pending);
+    }
+
+    /**
+     * Reserves slots for new records and makes sure their chunks exist.
+     */
+    private int reserve(int count) {
+        int first = reserved.getAndAdd(count);
+        if (first > Integer.MAX_VALUE - count) throw new IllegalStateException("Store is full");
+        int lastChunk = (first + count - 1) >>> CHUNK_BITS;
+        if (lastChunk >= chunks.length) {
+            growTo(lastChunk + 1);
+        }
+        return first;
+    }
+
+    private synchronized void growTo(int chunkCount) {
+        AtomicReferenceArray<Object>[] current = chunks;
+        if (current.length >= chunkCount) return;
+        AtomicReferenceArray<Object>[] next = Arrays.copyOf(current,
+                Math.max(chunkCount, current.length + current.length / 2));
+        for (int i = current.length; i < next.length; i++) {
+            next[i] = new AtomicReferenceArray<>(CHUNK_SIZE);
+        }
+        chunks = next;
+    }
+
+    private AtomicReferenceArray<Object> chunkFor(int slot) {
+        return chunks[slot >>> CHUNK_BITS];
+    }
+
+    /**
+     * Moves the published size over every filled slot that follows it. A slot that is
+     * reserved but not filled yet stops the move; its writer moves on past it once it
+     * has filled it.
+     */
+    private void advance() {
+        while (true) {
+            int size = published.get();
+            if (size >= reserved.get()) return;
+            AtomicReferenceArray<Object>[] current = chunks;
+            // The chunk of a reserved slot may not have been allocated yet
+            if ((size >>> CHUNK_BITS) >= current.length) return;
+            if (current[size >>> CHUNK_BITS].get(size & CHUNK_MASK) == null) return;
+            published.compareAndSet(size, size + 1);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AtomicReferenceArray<Object>[] newDirectory(int length) {
+        return (AtomicReferenceArray<Object>[]) new AtomicReferenceArray<?>[length];
+    }
+
+    /**
+     * The records of a store up to the size it had when the snapshot was taken,
+     * followed by any records not added yet.
+     */
+    private static class Snapshot<T> extends AbstractList<T> implements RandomAccess {
+        private final AtomicReferenceArray<Object>[] chunks;
+        private final int size;
+        private final List<T> pending;
+
+        Snapshot(AtomicReferenceArray<Object>[] chunks, int size) {
+            this(chunks, size, Collections.emptyList());
+        }
+
+        Snapshot(AtomicReferenceArray<Object>[] chunks, int size, List<T> pending) {
+            this.chunks = chunks;
+            this.size = size;
+            this.pending = pending;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            if (index >= size && index < size + pending.size()) return pending.get(index - size);
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return (T) chunks[index >>> CHUNK_BITS].get(index & CHUNK_MASK);
+        }
+
+        @Override
+        public int size() {
+            return size + pending.size();
+        }
+    }
+}
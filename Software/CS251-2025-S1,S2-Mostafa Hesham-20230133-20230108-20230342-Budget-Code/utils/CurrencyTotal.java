@@ -0,0 +1,84 @@
+package utils;
+
+import entities.RecurrenceRule;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Running total of amounts in any currency, read in the base currency.
+ * <p>
+ * Amounts in the base currency are added up as they come. Amounts in other
+ * currencies are summed per currency and day, and each of those sums is
+ * converted with {@link ExchangeRates} only when the total is read, so a
+ * total costs one rate lookup per distinct (currency, day) pair rather than
+ * one per amount, and none at all when every amount is in the base currency.
+ * The class is not thread-safe; combine per-thread totals with {@link #add(CurrencyTotal)}.
+ * </p>
+ */
+public class CurrencyTotal {
+    private final ExchangeRates rates = ExchangeRates.shared();
+    private long base;
+    private Map<Long, long[]> foreign; // created by the first foreign amount
+
+    /**
+     * Adds an amount.
+     * @param currencyId The dictionary id of the currency of the amount
+     * @param day The epoch day of the amount, whose rate applies
+     * @param cents The amount in cents of its currency
+     */
+    public void add(int currencyId, int day, long cents) {
+        if (currencyId == rates.getBaseCurrencyId()) {
+            base += cents;
+            return;
+        }
+        if (foreign == null) foreign = new HashMap<>();
+        foreign.computeIfAbsent(((long) currencyId << 32) | (day & 0xFFFFFFFFL), key -> new long[1])[0] += cents;
+    }
+
+    /**
+     * Adds the occurrences of a recurring amount within a period. In the base
+     * currency this takes constant time; otherwise each occurrence is added on its own day.
+     * @param rule The recurrence of the amount
+     * @param currencyId The dictionary id of the currency of the amount
+     * @param cents The amount of each occurrence in cents of its currency
+     * @param from The first day of the period (inclusive)
+     * @param to The last day of the period (inclusive)
+     */
+    public void addOccurrences(RecurrenceRule rule, int currencyId, long cents, LocalDate from, LocalDate to) {
+        if (currencyId == rates.getBaseCurrencyId()) {
+            base += cents * rule.countBetween(from, to);
+            return;
+        }
+        long last = rule.countThrough(to);
+        for (long index = rule.countThrough(from.minusDays(1)); index < last; index++) {
+            add(currencyId, (int) rule.occurrence(index).toEpochDay(), cents);
+        }
+    }
+
+    /**
+     * Adds another total to this one.
+     * @param other The total to add
+     */
+    public void add(CurrencyTotal other) {
+        base += other.base;
+        if (other.foreign == null) return;
+        if (foreign == null) foreign = new HashMap<>();
+        other.foreign.forEach((key, sum) -> foreign.computeIfAbsent(key, k -> new long[1])[0] += sum[0]);
+    }
+
+    /**
+     * Converts the total into the base currency.
+     * @return the total in cents of the base currency
+     */
+    public long toBase() {
+        long total = base;
+        if (foreign != null) {
+            for (Map.Entry<Long, long[]> entry : foreign.entrySet()) {
+                long key = entry.getKey();
+                total += rates.toBase(entry.getValue()[0], (int) (key >>> 32), (int) key);
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,79 @@
+package utils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Sorted index of records by date.
+ * <p>
+ * Records are grouped per day in a navigable map, so a period query costs a
+ * logarithmic seek plus the number of matching records, and adding a record
+ * only touches its own day. Records can be added and queried from several
+ * threads at once; a day's records are copied on write, which is cheap because
+ * a single day holds few of them.
+ * </p>
+ *
+ * @param <T> the type of record indexed
+ */
+public class DateIndex<T> {
+    private final NavigableMap<LocalDate, List<T>> byDate = new ConcurrentSkipListMap<>();
+    private final Function<T, LocalDate> dateOf;
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Creates an empty index.
+     * @param dateOf Extracts the date of a record
+     */
+    public DateIndex(Function<T, LocalDate> dateOf) {
+        this.dateOf = dateOf;
+    }
+
+    /**
+     * Adds a record to the index.
+     * @param record The record to add
+     */
+    public void add(T record) {
+        byDate.computeIfAbsent(dateOf.apply(record), day -> new CopyOnWriteArrayList<>()).add(record);
+        size.incrementAndGet();
+    }
+
+    /**
+     * Adds every record in a collection to the index.
+     * @param records The records to add
+     */
+    public void addAll(Collection<T> records) {
+        for (T record : records) {
+            add(record);
+        }
+    }
+
+    /**
+     * Gets the records dated within a period, in date order.
+     * @param from The first day of the period (inclusive)
+     * @param to The last day of the period (inclusive)
+     * @return the matching records
+     */
+    public List<T> between(LocalDate from, LocalDate to) {
+        List<T> result = new ArrayList<>();
+        if (from.isAfter(to)) return result;
+        for (List<T> day : byDate.subMap(from, true, to, true).values()) {
+            result.addAll(day);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of indexed records.
+     * @return the record count
+     */
+    public int size() {
+        return size.get();
+    }
+}
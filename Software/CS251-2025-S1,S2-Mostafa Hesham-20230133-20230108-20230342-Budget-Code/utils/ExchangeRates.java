@@ -0,0 +1,237 @@
+package utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exchange rates into the base currency, loaded from a local table.
+ * <p>
+ * The table is {@code rates.csv} in the data directory, one rate per line as
+ * {@code currency,date,rate}: from that date on, until the next rate of the same
+ * currency, one unit of the currency is worth {@code rate} units of the base
+ * currency. Days before a currency's first rate use that first rate. Blank lines
+ * and lines starting with {@code #} are ignored.
+ * </p>
+ * <p>
+ * The rates of each currency are kept in sorted arrays and the rate of a day is
+ * found by binary search. The (currency, day) pairs looked up most recently are
+ * kept in a bounded LRU cache, so the same conversions are not searched for
+ * again. Amounts should be converted once per aggregate with
+ * {@link CurrencyTotal} rather than one by one. The rates are safe to use from
+ * several threads.
+ * </p>
+ * <p>
+ * New amounts are only accepted in currencies with rates, but records saved
+ * earlier may be in a currency the table no longer lists. Such amounts are
+ * counted one to one with the base currency, and the missing currency is
+ * reported once, so totals and budgets still load.
+ * </p>
+ */
+public class ExchangeRates {
+    /** The currency that records without a currency are in and that totals are shown in. */
+    public static final String BASE_CURRENCY = "USD";
+
+    private static final String RATES_FILE = "rates.csv";
+    private static final int MAX_CACHED_RATES = 4096;
+    private static final ExchangeRates SHARED = new ExchangeRates(SerializationHelper.getDataFile(RATES_FILE));
+
+    private final int baseCurrencyId;
+    private final Map<Integer, RateTable> tables = new HashMap<>();
+    private final Set<String> currencies = new HashSet<>();
+    private final Set<Integer> reportedMissing = ConcurrentHashMap.newKeySet();
+    private final RateCache cache = new RateCache();
+
+    private ExchangeRates(File file) {
+        baseCurrencyId = StringDictionary.shared().idOf(BASE_CURRENCY);
+        if (file.exists()) load(file);
+    }
+
+    /**
+     * Gets the rates shared by the whole application, loading the table on first use.
+     * @return the shared rates
+     */
+    public static ExchangeRates shared() {
+        return SHARED;
+    }
+
+    /**
+     * Normalizes a currency code, e.g. " eur" to "EUR".
+     * @param code The currency code as entered
+     * @return the code in upper case
+     * @throws IllegalArgumentException if the code is not three letters
+     */
+    public static String normalize(String code) {
+        String normalized = code.trim().toUpperCase(Locale.ROOT);
+        if (!normalized.matches("[A-Z]{3}")) {
+            throw new IllegalArgumentException("Currency must be a three-letter code: " + code);
+        }
+        return normalized;
+    }
+
+    /**
+     * Gets the dictionary id of a currency without adding it to the dictionary.
+     * A currency that is not in the dictionary has no rates and no records, so it
+     * is counted as the base currency.
+     * @param currency The currency code
+     * @return the currency's id, or the base currency id if it is unknown
+     */
+    public int currencyId(String currency) {
+        int id = StringDictionary.shared().find(currency);
+        return (id >= 0) ? id : baseCurrencyId;
+    }
+
+    /**
+     * Gets the dictionary id of the base currency.
+     * @return the base currency id
+     */
+    public int getBaseCurrencyId() {
+        return baseCurrencyId;
+    }
+
+    /**
+     * Checks whether amounts in a currency can be converted.
+     * @param currency The currency code
+     * @return true for the base currency and every currency with a rate
+     */
+    public boolean isKnown(String currency) {
+        // Not looked up in the dictionary, which would keep every mistyped code
+        return currency.equals(BASE_CURRENCY) || currencies.contains(currency);
+    }
+
+    /**
+     * Gets the value of one unit of a currency in the base currency on a day.
+     * @param currencyId The dictionary id of the currency
+     * @param day The epoch day
+     * @return the rate, or 1 if the currency has no rates
+     */
+    public double rate(int currencyId, int day) {
+        if (currencyId == baseCurrencyId) return 1.0;
+        long key = ((long) currencyId << 32) | (day & 0xFFFFFFFFL);
+        synchronized (cache) {
+            Double cached = cache.get(key);
+            if (cached != null) return cached;
+        }
+        RateTable table = tables.get(currencyId);
+        if (table == null && reportedMissing.add(currencyId)) {
+            System.err.println("No exchange rate for " + StringDictionary.shared().valueOf(currencyId)
+                    + " in " + RATES_FILE + "; counting its amounts one to one with " + BASE_CURRENCY);
+            Metrics.increment("rates.missing");
+        }
+        double rate = (table != null) ? table.on(day) : 1.0;
+        Metrics.increment("rates.lookups");
+        synchronized (cache) {
+            cache.put(key, rate);
+        }
+        return rate;
+    }
+
+    /**
+     * Converts an amount into the base currency at the rate of a day.
+     * @param cents The amount in cents of its currency
+     * @param currencyId The dictionary id of the currency
+     * @param day The epoch day whose rate applies
+     * @return the amount in cents of the base currency
+     */
+    public long toBase(long cents, int currencyId, int day) {
+        return (currencyId == baseCurrencyId) ? cents : Math.round(cents * rate(currencyId, day));
+    }
+
+    /**
+     * Converts an amount from the base currency into another currency at the rate of a day.
+     * @param baseCents The amount in cents of the base currency
+     * @param currencyId The dictionary id of the currency to convert to
+     * @param day The epoch day whose rate applies
+     * @return the amount in cents of the other currency
+     */
+    public long fromBase(long baseCents, int currencyId, int day) {
+        return (currencyId == baseCurrencyId) ? baseCents : Math.round(baseCents / rate(currencyId, day));
+    }
+
+    /**
+     * Reads the table, skipping (and reporting) lines that are not valid rates.
+     */
+    private void load(File file) {
+        Map<Integer, TreeMap<Integer, Double>> byCurrency = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] fields = line.split(",");
+                try {
+                    if (fields.length != 3) throw new IllegalArgumentException("expected currency,date,rate");
+                    int currencyId = StringDictionary.shared().idOf(normalize(fields[0]));
+                    int day = (int) LocalDate.parse(fields[1].trim()).toEpochDay();
+                    double rate = Double.parseDouble(fields[2].trim());
+                    if (!(rate > 0)) throw new IllegalArgumentException("rate must be positive");
+                    byCurrency.computeIfAbsent(currencyId, id -> new TreeMap<>()).put(day, rate);
+                } catch (DateTimeParseException | IllegalArgumentException e) {
+                    System.err.println("Skipping " + RATES_FILE + " line " + number + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading exchange rates: " + e.getMessage());
+        }
+        byCurrency.remove(baseCurrencyId);
+        byCurrency.forEach((currencyId, rates) -> {
+            tables.put(currencyId, new RateTable(rates));
+            currencies.add(StringDictionary.shared().valueOf(currencyId));
+        });
+    }
+
+    /**
+     * The rates of one currency, sorted by the day they take effect.
+     */
+    private static class RateTable {
+        private final int[] days;
+        private final double[] rates;
+
+        RateTable(TreeMap<Integer, Double> byDay) {
+            days = new int[byDay.size()];
+            rates = new double[byDay.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Double> entry : byDay.entrySet()) {
+                days[i] = entry.getKey();
+                rates[i++] = entry.getValue();
+            }
+        }
+
+        double on(int day) {
+            int index = Arrays.binarySearch(days, day);
+            if (index < 0) index = Math.max(0, -index - 2); // the latest rate before the day
+            return rates[index];
+        }
+    }
+
+    /**
+     * Least recently used (currency, day) rates, evicted beyond a fixed size.
+     */
+    private static class RateCache extends LinkedHashMap<Long, Double> {
+        private static final long serialVersionUID = 1L;
+
+        RateCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Double> eldest) {
+            return size() > MAX_CACHED_RATES;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package utils;
+
+/**
+ * Fenwick (binary indexed) tree of amounts in cents indexed by epoch day.
+ * <p>
+ * Adding an amount to a day and summing any range of days both take
+ * logarithmic time. The tree covers a window of days that grows (with
+ * headroom, so growth is rare) when an amount falls outside of it.
+ * The tree is safe to update and query from several threads.
+ * </p>
+ */
+public class FenwickTree {
+    private static final int MIN_CAPACITY = 512;
+
+    private int base;                      // epoch day stored at index 0 of daily
+    private long[] daily = new long[0];     // raw amount per day, used to rebuild on growth
+    private long[] tree = new long[1];      // 1-based Fenwick array over daily
+
+    /**
+     * Adds an amount to a day.
+     * @param day The epoch day
+     * @param amountCents The amount to add in cents
+     */
+    public synchronized void add(int day, long amountCents) {
+        if (daily.length == 0 || day < base || day >= base + daily.length) {
+            grow(day);
+        }
+        daily[day - base] += amountCents;
+        for (int i = day - base + 1; i < tree.length; i += i & -i) {
+            tree[i] += amountCents;
+        }
+    }
+
+    /**
+     * Sums the amounts of a range of days.
+     * @param fromDay The first epoch day (inclusive)
+     * @param toDay The last epoch day (inclusive)
+     * @return the total for the range in cents
+     */
+    public synchronized long sum(int fromDay, int toDay) {
+        if (fromDay > toDay) return 0;
+        return prefix(toDay) - prefix(fromDay - 1);
+    }
+
+    /**
+     * Passes the total of each day of a range that has any amount to an action, in day order.
+     * @param fromDay The first epoch day (inclusive)
+     * @param toDay The last epoch day (inclusive)
+     * @param action Receives each day and its total in cents
+     */
+    public synchronized void forEachDay(int fromDay, int toDay, DayAction action) {
+        int first = Math.max(fromDay, base);
+        int last = Math.min(toDay, base + daily.length - 1);
+        for (int day = first; day <= last; day++) {
+            if (daily[day - base] != 0) action.accept(day, daily[day - base]);
+        }
+    }
+
+    /**
+     * Receives the total of one day.
+     */
+    public interface DayAction {
+        /**
+         * Receives the total of one day.
+         * @param day The epoch day
+         * @param amountCents The total of the day in cents
+         */
+        void accept(int day, long amountCents);
+    }
+
+    /**
+     * Sums the amounts of every day up to and including the given day.
+     */
+    private long prefix(int day) {
+        if (daily.length == 0 || day < base) return 0;
+        long total = 0;
+        for (int i = Math.min(day - base + 1, daily.length); i > 0; i -= i & -i) {
+            total += tree[i];
+        }
+        return total;
+    }
+
+    /**
+     * Widens the window to include the given day and rebuilds the tree in linear time.
+     */
+    private void grow(int day) {
+        boolean empty = daily.length == 0;
+        int low = empty ? day : Math.min(base, day);
+        int high = empty ? day : Math.max(base + daily.length - 1, day);
+        int capacity = Math.max(MIN_CAPACITY, 2 * (high - low + 1));
+        int newBase = empty ? day - capacity / 2 : (day < base ? high - capacity + 1 : low);
+
+        long[] newDaily = new long[capacity];
+        if (!empty) {
+            System.arraycopy(daily, 0, newDaily, base - newBase, daily.length);
+        }
+        long[] newTree = new long[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            newTree[i] += newDaily[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                newTree[parent] += newTree[i];
+            }
+        }
+        base = newBase;
+        daily = newDaily;
+        tree = newTree;
+    }
+}
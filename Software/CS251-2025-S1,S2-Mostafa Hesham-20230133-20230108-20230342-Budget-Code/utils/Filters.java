@@ -0,0 +1,83 @@
+package utils;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Builds record filters for the history views.
+ * <p>
+ * Every bound is optional: a null or empty bound yields a filter that accepts
+ * every record, so the filters can be combined with {@link Predicate#and}
+ * straight from the user's answers.
+ * </p>
+ */
+public class Filters {
+
+    /**
+     * Accepts records dated within a period.
+     * @param dateOf Extracts the date of a record
+     * @param from The first day (inclusive), or null for no lower bound
+     * @param to The last day (inclusive), or null for no upper bound
+     * @param <T> The record type
+     * @return the filter
+     */
+    public static <T> Predicate<T> dateRange(Function<T, LocalDate> dateOf, LocalDate from, LocalDate to) {
+        if (from == null && to == null) return record -> true;
+        return record -> {
+            LocalDate date = dateOf.apply(record);
+            return (from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to));
+        };
+    }
+
+    /**
+     * Accepts records whose amount lies within bounds.
+     * @param amountOf Extracts the amount of a record
+     * @param min The smallest amount (inclusive), or null for no lower bound
+     * @param max The largest amount (inclusive), or null for no upper bound
+     * @param <T> The record type
+     * @return the filter
+     */
+    public static <T> Predicate<T> amountRange(ToDoubleFunction<T> amountOf, Double min, Double max) {
+        if (min == null && max == null) return record -> true;
+        double low = (min != null) ? min : Double.NEGATIVE_INFINITY;
+        double high = (max != null) ? max : Double.POSITIVE_INFINITY;
+        return record -> {
+            double amount = amountOf.applyAsDouble(record);
+            return amount >= low && amount <= high;
+        };
+    }
+
+    /**
+     * Accepts records whose text field equals a value, ignoring case.
+     * @param textOf Extracts the text of a record
+     * @param value The value to match, or empty to accept every record
+     * @param <T> The record type
+     * @return the filter
+     */
+    public static <T> Predicate<T> text(Function<T, String> textOf, String value) {
+        if (value == null || value.isEmpty()) return record -> true;
+        return record -> textOf.apply(record).equalsIgnoreCase(value);
+    }
+
+    /**
+     * Accepts records whose dictionary-encoded field equals a value, ignoring case.
+     * The matching ids are resolved once, so records are compared by id only.
+     * @param idOf Extracts the dictionary id of a record's field
+     * @param value The value to match, or empty to accept every record
+     * @param <T> The record type
+     * @return the filter
+     */
+    public static <T> Predicate<T> dictionaryText(ToIntFunction<T> idOf, String value) {
+        if (value == null || value.isEmpty()) return record -> true;
+        StringDictionary dictionary = StringDictionary.shared();
+        BitSet ids = new BitSet();
+        for (int id = 0, size = dictionary.size(); id < size; id++) {
+            if (dictionary.valueOf(id).equalsIgnoreCase(value)) ids.set(id);
+        }
+        return record -> ids.get(idOf.applyAsInt(record));
+    }
+}
@@ -1,15 +1,33 @@
 package utils;
 
+import entities.RecurrenceRule;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeParseException;
-import java.util.Scanner;
+import java.util.NoSuchElementException;
 
 /**
  * Utility class for handling user input with validation.
+ * <p>
+ * Every instance reads from the same buffered reader over standard input. A reader
+ * per instance would buffer ahead and swallow lines meant for the others, which
+ * breaks as soon as input is piped in rather than typed.
+ * </p>
  */
 public class InputHelper {
-    private final Scanner scanner = new Scanner(System.in);
+    private static final BufferedReader STDIN = new BufferedReader(new InputStreamReader(System.in));
+
+    /**
+     * Gets the reader shared by every prompt, for code that reads standard input in bulk.
+     * @return The buffered reader over standard input.
+     */
+    public static BufferedReader getStandardInput() {
+        return STDIN;
+    }
 
     /**
      * Prompts the user for non-empty input.
@@ -19,12 +37,56 @@ public class InputHelper {
     public String getNonEmpty(String prompt) {
         while (true) {
             System.out.print(prompt);
-            String input = scanner.nextLine().trim();
+            String input = readLine().trim();
             if (!input.isEmpty()) return input;
             System.out.println("This field cannot be empty!");
         }
     }
 
+    /**
+     * Prompts the user for input that may be left empty.
+     * @param prompt The message to display to the user.
+     * @return The trimmed input, which is empty if the user just pressed Enter.
+     */
+    public String getOptional(String prompt) {
+        System.out.print(prompt);
+        return readLine().trim();
+    }
+
+    /**
+     * Prompts the user for a double value that may be left empty.
+     * @param prompt The message to display to the user.
+     * @return The value entered by the user, or null if the input was left empty.
+     */
+    public Double getOptionalDouble(String prompt) {
+        while (true) {
+            String input = getOptional(prompt);
+            if (input.isEmpty()) return null;
+            try {
+                return Double.parseDouble(input);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid number format!");
+            }
+        }
+    }
+
+    /**
+     * Prompts the user for a date that may be left empty.
+     * @param prompt The message to display to the user.
+     * @return The date entered by the user, or null if the input was left empty.
+     */
+    public LocalDate getOptionalDate(String prompt) {
+        while (true) {
+            String input = getOptional(prompt);
+            if (input.isEmpty()) return null;
+            try {
+                return LocalDate.parse(input);
+            } catch (DateTimeParseException e) {
+                System.out.println("Invalid date format! Use YYYY-MM-DD");
+            }
+        }
+    }
+
     /**
      * Prompts the user for a positive double value.
      * @param prompt The message to display to the user.
@@ -34,7 +96,7 @@ public class InputHelper {
         while (true) {
             try {
                 System.out.print(prompt);
-                double value = Double.parseDouble(scanner.nextLine());
+                double value = Double.parseDouble(readLine());
                 if (value > 0) return value;
                 System.out.println("Value must be positive!");
             } catch (NumberFormatException e) {
@@ -43,6 +105,61 @@ public class InputHelper {
         }
     }
 
+    /**
+     * Prompts the user for a whole number of at least 1.
+     * @param prompt The message to display to the user.
+     * @return A positive integer entered by the user.
+     */
+    public int getPositiveInt(String prompt) {
+        while (true) {
+            try {
+                System.out.print(prompt);
+                int value = Integer.parseInt(readLine().trim());
+                if (value > 0) return value;
+                System.out.println("Value must be positive!");
+            } catch (NumberFormatException e) {
+                System.out.println("Must be a whole number!");
+            }
+        }
+    }
+
+    /**
+     * Prompts the user for a positive amount of money with at most two decimals.
+     * @param prompt The message to display to the user.
+     * @return The amount entered by the user, in cents.
+     */
+    public long getPositiveAmount(String prompt) {
+        while (true) {
+            try {
+                System.out.print(prompt);
+                long cents = Money.parse(readLine());
+                if (Validators.validateTransaction(cents)) return cents;
+                System.out.println("Value must be positive!");
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid amount! Use at most two decimals");
+            }
+        }
+    }
+
+    /**
+     * Prompts the user for the currency of an amount, defaulting to the base currency.
+     * Only currencies with exchange rates are accepted, so every amount can be converted.
+     * @return The currency code entered by the user, in upper case.
+     */
+    public String getCurrency() {
+        while (true) {
+            String input = getOptional("Currency (Enter for " + ExchangeRates.BASE_CURRENCY + "): ");
+            if (input.isEmpty()) return ExchangeRates.BASE_CURRENCY;
+            try {
+                String currency = ExchangeRates.normalize(input);
+                if (ExchangeRates.shared().isKnown(currency)) return currency;
+                System.out.println("No exchange rate for " + currency + "!");
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
     /**
      * Prompts the user for a future date.
      * @param prompt The message to display to the user.
@@ -68,7 +185,9 @@ public class InputHelper {
     public LocalDate getDate(String prompt) {
         while (true) {
             try {
-                return LocalDate.parse(getNonEmpty(prompt));
+                LocalDate date = LocalDate.parse(getNonEmpty(prompt));
+                if (Validators.validateDate(date)) return date;
+                System.out.println("Date must be between " + Validators.MIN_DATE + " and " + Validators.MAX_DATE + "!");
             } catch (DateTimeParseException e) {
                 System.out.println("Invalid date format! Use YYYY-MM-DD");
             }
@@ -104,6 +223,30 @@ public class InputHelper {
         }
     }
 
+    /**
+     * Prompts the user for how often an entry repeats, from which date and until when.
+     * @return The recurrence rule described by the user.
+     */
+    public RecurrenceRule getRecurrenceRule() {
+        RecurrenceRule.Frequency frequency;
+        while (true) {
+            String unit = getNonEmpty("Repeats (daily/weekly/monthly): ").toUpperCase();
+            try {
+                frequency = RecurrenceRule.Frequency.valueOf(unit);
+                break;
+            } catch (IllegalArgumentException e) {
+                System.out.println("Choose daily, weekly or monthly!");
+            }
+        }
+        int interval = getPositiveInt("Every how many periods (1 for every period): ");
+        LocalDate start = getDate("First date (YYYY-MM-DD): ");
+        while (true) {
+            LocalDate end = getOptionalDate("Last date (YYYY-MM-DD, Enter for none): ");
+            if (end == null || !end.isBefore(start)) return new RecurrenceRule(frequency, interval, start, end);
+            System.out.println("Last date cannot be before the first date!");
+        }
+    }
+
     /**
      * Prompts the user for a valid email address.
      * @param prompt The message to display to the user.
@@ -131,4 +274,19 @@ public class InputHelper {
             System.out.println("Must be " + min + "-" + max + " characters!");
         }
     }
+
+    /**
+     * Reads the next line of standard input.
+     * @return The line, without its line terminator.
+     * @throws NoSuchElementException if standard input is exhausted.
+     */
+    private String readLine() {
+        try {
+            String line = STDIN.readLine();
+            if (line == null) throw new NoSuchElementException("No line found");
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Creates a manager on first use, optionally starting the load in the background.
+ * <p>
+ * {@link #preload()} starts loading on a background daemon thread, so the data is
+ * usually ready by the time its menu is opened. {@link #get()} returns the loaded
+ * manager, waiting for the background load if it is still running. Load and wait
+ * times are recorded in the {@link StartupReport}. A load that fails is reported
+ * when it fails and again by the next {@link #get()}, which starts it over.
+ * </p>
+ *
+ * @param <T> the type of the loaded object
+ */
+public class LazyLoader<T> {
+    // Unbounded, so a loader that waits on another loader (budgets wait on expenses) can never starve it
+    private static final ExecutorService BACKGROUND = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "background-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final Supplier<T> factory;
+    private CompletableFuture<T> future;
+
+    /**
+     * Creates a loader that has not started loading yet.
+     * @param name The name used in the startup report
+     * @param factory Creates (and thereby loads) the object
+     */
+    public LazyLoader(String name, Supplier<T> factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    /**
+     * Starts loading in the background if loading has not started yet.
+     */
+    public synchronized void preload() {
+        if (future == null) {
+            future = CompletableFuture.supplyAsync(this::load, BACKGROUND);
+        }
+    }
+
+    /**
+     * Gets the loaded object, loading it on the calling thread if no background load was started.
+     * @return the loaded object
+     * @throws IllegalStateException if loading failed; the next call loads again
+     */
+    public T get() {
+        CompletableFuture<T> pending;
+        synchronized (this) {
+            if (future == null) {
+                future = CompletableFuture.supplyAsync(this::load, Runnable::run);
+            }
+            pending = future;
+        }
+        try {
+            if (pending.isDone()) {
+                return pending.join();
+            }
+            long start = System.nanoTime();
+            T value = pending.join();
+            StartupReport.record(name + " (waited)", System.nanoTime() - start);
+            return value;
+        } catch (CompletionException e) {
+            synchronized (this) {
+                if (future == pending) future = null;
+            }
+            throw new IllegalStateException("Could not load " + name, e.getCause());
+        }
+    }
+
+    /**
+     * Runs an action on the object only if it has already been loaded.
+     * @param action The action to run
+     */
+    public void ifLoaded(Consumer<T> action) {
+        CompletableFuture<T> pending;
+        synchronized (this) {
+            pending = future;
+        }
+        if (pending != null && pending.isDone() && !pending.isCompletedExceptionally()) {
+            action.accept(pending.join());
+        }
+    }
+
+    /**
+     * Runs an action on the object once it has loaded: now if it already has, or on
+     * the loading thread when the load finishes. Nothing runs if loading never started
+     * or fails.
+     * @param action The action to run
+     */
+    public void whenLoaded(Consumer<T> action) {
+        CompletableFuture<T> pending;
+        synchronized (this) {
+            pending = future;
+        }
+        if (pending != null) {
+            pending.thenAccept(action);
+        }
+    }
+
+    private T load() {
+        long start = System.nanoTime();
+        try {
+            T value = factory.get();
+            StartupReport.record(name, System.nanoTime() - start);
+            return value;
+        } catch (RuntimeException e) {
+            System.err.println("Could not load " + name + ": " + e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package utils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Runtime metrics shared by the whole application.
+ * <p>
+ * Four kinds of metric are kept, all safe to update from any thread without locking:
+ * </p>
+ * <ul>
+ *   <li>counters, such as inserts and (failed) logins</li>
+ *   <li>gauges, read when the metrics are shown, such as record counts</li>
+ *   <li>the size of every data file as of its last read or write</li>
+ *   <li>a {@link LatencyHistogram} per operation and file, such as saves of budgets.ser</li>
+ * </ul>
+ * <p>
+ * {@link #print()} shows them in the console and {@link #export(File)} writes them
+ * as CSV for offline analysis. The persistence paths also emit a
+ * {@link PersistenceEvent} for Flight Recorder.
+ * </p>
+ */
+public class Metrics {
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private static final Map<String, Long> fileSizes = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * Adds one to a counter.
+     * @param name The name of the counter
+     */
+    public static void increment(String name) {
+        add(name, 1);
+    }
+
+    /**
+     * Adds to a counter.
+     * @param name The name of the counter
+     * @param amount The amount to add
+     */
+    public static void add(String name, long amount) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+    }
+
+    /**
+     * Gets the value of a counter.
+     * @param name The name of the counter
+     * @return the value, or 0 if it was never incremented
+     */
+    public static long getCounter(String name) {
+        LongAdder counter = counters.get(name);
+        return (counter != null) ? counter.sum() : 0;
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge of the same name.
+     * @param name The name of the gauge
+     * @param value Reads the current value
+     */
+    public static void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Removes the gauges whose names start with a prefix, e.g. those of a closed partition.
+     * @param prefix The prefix of the names to remove
+     */
+    public static void removeGauges(String prefix) {
+        gauges.keySet().removeIf(name -> name.startsWith(prefix));
+    }
+
+    /**
+     * Records how long an operation on a data file took and the size the file has afterwards.
+     * A failed operation is also counted as {@code <operation>.failures}.
+     * @param operation What was done to the file, e.g. "save" or "load"
+     * @param file The name of the file in the data directory
+     * @param nanos How long the operation took
+     * @param bytes The size of the file afterwards
+     * @param success Whether the operation succeeded
+     */
+    public static void recordPersistence(String operation, String file, long nanos, long bytes, boolean success) {
+        latencies.computeIfAbsent(operation + " " + file, key -> new LatencyHistogram()).record(nanos);
+        fileSizes.put(file, bytes);
+        if (!success) increment(operation + ".failures");
+    }
+
+    /**
+     * Gets the latency histogram of an operation on a file.
+     * @param operation What was done to the file
+     * @param file The name of the file in the data directory
+     * @return the histogram, or null if the operation was never recorded
+     */
+    public static LatencyHistogram getLatency(String operation, String file) {
+        return latencies.get(operation + " " + file);
+    }
+
+    /**
+     * Prints every metric, sorted by name.
+     */
+    public static void print() {
+        System.out.println("\n=== STATS ===");
+        System.out.println("Counters:");
+        new TreeMap<>(counters).forEach((name, value) -> System.out.printf("  %-40s %12d%n", name, value.sum()));
+        System.out.println("Gauges:");
+        new TreeMap<>(gauges).forEach((name, value) -> System.out.printf("  %-40s %12d%n", name, value.getAsLong()));
+        System.out.println("File sizes:");
+        new TreeMap<>(fileSizes).forEach((name, bytes) -> System.out.printf("  %-40s %9.1f KB%n", name, bytes / 1024.0));
+        System.out.println("Latency (ms):");
+        System.out.printf("  %-40s %8s %9s %9s %9s %9s%n", "operation", "count", "mean", "p50", "p99", "max");
+        new TreeMap<>(latencies).forEach((name, histogram) -> System.out.printf("  %-40s %8d %9.3f %9.3f %9.3f %9.3f%n",
+                name, histogram.getCount(), histogram.getMean() / 1e6, histogram.getPercentile(0.5) / 1e6,
+                histogram.getPercentile(0.99) / 1e6, histogram.getMax() / 1e6));
+    }
+
+    /**
+     * Writes every metric to a CSV file with the columns
+     * {@code kind,name,value,count,mean_ns,p50_ns,p90_ns,p99_ns,max_ns}.
+     * Counters, gauges and file sizes (in bytes) only fill in the value.
+     * @param file The file to write
+     * @return true if successful, false otherwise
+     */
+    public static boolean export(File file) {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println("kind,name,value,count,mean_ns,p50_ns,p90_ns,p99_ns,max_ns");
+            new TreeMap<>(counters).forEach((name, value) -> out.println("counter," + csv(name) + "," + value.sum() + ",,,,,,"));
+            new TreeMap<>(gauges).forEach((name, value) -> out.println("gauge," + csv(name) + "," + value.getAsLong() + ",,,,,,"));
+            new TreeMap<>(fileSizes).forEach((name, bytes) -> out.println("file," + csv(name) + "," + bytes + ",,,,,,"));
+            new TreeMap<>(latencies).forEach((name, histogram) -> out.printf("latency,%s,,%d,%.0f,%d,%d,%d,%d%n",
+                    csv(name), histogram.getCount(), histogram.getMean(), histogram.getPercentile(0.5),
+                    histogram.getPercentile(0.9), histogram.getPercentile(0.99), histogram.getMax()));
+            return !out.checkError();
+        } catch (IOException e) {
+            System.err.println("Error exporting metrics: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static String csv(String value) {
+        return (value.contains(",") || value.contains("\"")) ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+}
@@ -0,0 +1,164 @@
+package utils;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Shows a filtered list of records one page at a time.
+ * <p>
+ * A page is found by scanning forward from a cursor, the position in the source
+ * list where the page starts. A cursor keeps pointing at the same record only
+ * while records are added after it: a {@link RecurrenceView} lists occurrences
+ * after its stored records, so each new stored record moves the occurrences one
+ * position on, and cursors handed out across requests must allow for that. Only
+ * the records on the visible page are collected and formatted, and each page is
+ * written to the console through one buffered writer and flushed once.
+ * </p>
+ *
+ * @param <T> the type of record shown
+ */
+public class PagedView<T> {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    private static final PrintWriter OUT =
+            new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16), false);
+
+    private final List<T> source;
+    private final Predicate<T> filter;
+    private final Function<T, String> format;
+    private final int pageSize;
+
+    /**
+     * Creates a view with the default page size.
+     * @param source The records, in the order they were added
+     * @param filter Selects the records to show
+     * @param format Formats one record as a line
+     */
+    public PagedView(List<T> source, Predicate<T> filter, Function<T, String> format) {
+        this(source, filter, format, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Creates a view.
+     * @param source The records, in the order they were added
+     * @param filter Selects the records to show
+     * @param format Formats one record as a line
+     * @param pageSize The number of records per page
+     */
+    public PagedView(List<T> source, Predicate<T> filter, Function<T, String> format, int pageSize) {
+        this.source = source;
+        this.filter = filter;
+        this.format = format;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Gets the page that starts at a cursor.
+     * @param cursor The position in the source list to start scanning from
+     * @return the matching records of the page and the cursor of the next page
+     */
+    public Page<T> fetch(int cursor) {
+        List<T> rows = new ArrayList<>(pageSize);
+        int i = cursor;
+        int end = source.size();
+        for (; i < end && rows.size() < pageSize; i++) {
+            T record = source.get(i);
+            if (filter.test(record)) rows.add(record);
+        }
+        // Start the next page at the next match, so an exhausted view is known now
+        while (i < end && !filter.test(source.get(i))) {
+            i++;
+        }
+        return new Page<>(rows, (i < end) ? i : -1);
+    }
+
+    /**
+     * Shows the first page and lets the user move forwards and backwards until they quit.
+     * @param input The input helper used to read navigation commands
+     */
+    public void browse(InputHelper input) {
+        Deque<Integer> previous = new ArrayDeque<>();
+        int cursor = 0;
+        while (true) {
+            Page<T> page = fetch(cursor);
+            if (page.getRows().isEmpty()) {
+                System.out.println("No matching records found!");
+                return;
+            }
+            render(page, previous.size() + 1);
+            if (!page.hasNext() && previous.isEmpty()) return;
+
+            String choice = input.getNonEmpty(navigationPrompt(page, !previous.isEmpty())).toLowerCase();
+            if (choice.equals("n") && page.hasNext()) {
+                previous.push(cursor);
+                cursor = page.getNextCursor();
+            } else if (choice.equals("p") && !previous.isEmpty()) {
+                cursor = previous.pop();
+            } else if (choice.equals("q")) {
+                return;
+            } else {
+                System.out.println("Invalid choice");
+            }
+        }
+    }
+
+    private void render(Page<T> page, int number) {
+        OUT.println("--- Page " + number + " ---");
+        for (T record : page.getRows()) {
+            OUT.println(format.apply(record));
+        }
+        OUT.flush();
+    }
+
+    private static String navigationPrompt(Page<?> page, boolean hasPrevious) {
+        StringBuilder prompt = new StringBuilder();
+        if (page.hasNext()) prompt.append("[n]ext, ");
+        if (hasPrevious) prompt.append("[p]revious, ");
+        return prompt.append("[q]uit: ").toString();
+    }
+
+    /**
+     * One page of records and the cursor where the following page starts.
+     *
+     * @param <T> the type of record shown
+     */
+    public static class Page<T> {
+        private final List<T> rows;
+        private final int nextCursor;
+
+        Page(List<T> rows, int nextCursor) {
+            this.rows = rows;
+            this.nextCursor = nextCursor;
+        }
+
+        /**
+         * Gets the records on this page.
+         * @return the records, at most one page long
+         */
+        public List<T> getRows() {
+            return rows;
+        }
+
+        /**
+         * Gets the cursor of the following page.
+         * @return the cursor, or -1 if this is the last page
+         */
+        public int getNextCursor() {
+            return nextCursor;
+        }
+
+        /**
+         * Checks whether more matching records follow this page.
+         * @return true if there is a next page
+         */
+        public boolean hasNext() {
+            return nextCursor >= 0;
+        }
+    }
+}
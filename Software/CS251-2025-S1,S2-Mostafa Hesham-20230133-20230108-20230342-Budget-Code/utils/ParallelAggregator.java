@@ -0,0 +1,130 @@
+package utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Groups records by a numeric key and sums a whole-number value, such as an
+ * amount in cents, per group using fork-join.
+ * <p>
+ * The list is split in halves until the pieces are small, each piece is
+ * aggregated into its own map on a worker thread, and the partial maps are
+ * merged on the way back up. Work spreads over every core of the common pool.
+ * </p>
+ */
+public class ParallelAggregator {
+    private static final int LEAF_SIZE = 8192;
+
+    /**
+     * Sums a value per key over a list of records.
+     * @param records The records to aggregate (should support fast random access)
+     * @param key Extracts the group key of a record
+     * @param value Extracts the value to sum
+     * @param <T> The record type
+     * @return for each key, an array holding the sum at index 0 and the record count at index 1
+     */
+    public static <T> Map<Long, long[]> sumBy(List<T> records, ToLongFunction<T> key, ToLongFunction<T> value) {
+        return sumBy(records, key, value, null, null);
+    }
+
+    /**
+     * Sums amounts in any currency per key over a list of records, in the base currency.
+     * Within each group, amounts in other currencies are kept per currency and day
+     * in a {@link CurrencyTotal} and converted once the partial results are merged,
+     * so there is no rate lookup per record.
+     * @param records The records to aggregate (should support fast random access)
+     * @param key Extracts the group key of a record
+     * @param cents Extracts the amount of a record in cents of its currency
+     * @param currency Extracts the dictionary id of the currency of a record
+     * @param day Extracts the epoch day of a record, whose rate applies
+     * @param <T> The record type
+     * @return for each key, an array holding the total in cents of the base currency
+     *         at index 0 and the record count at index 1
+     */
+    public static <T> Map<Long, long[]> sumInBaseCurrency(List<T> records, ToLongFunction<T> key, ToLongFunction<T> cents,
+                                                         ToIntFunction<T> currency, ToIntFunction<T> day) {
+        return sumBy(records, key, cents, currency, day);
+    }
+
+    private static <T> Map<Long, long[]> sumBy(List<T> records, ToLongFunction<T> key, ToLongFunction<T> value,
+                                               ToIntFunction<T> currency, ToIntFunction<T> day) {
+        Map<Long, Group> groups = ForkJoinPool.commonPool().invoke(
+                new SumTask<>(records, key, value, currency, day, 0, records.size()));
+        Map<Long, long[]> sums = new HashMap<>();
+        groups.forEach((k, group) -> sums.put(k,
+                new long[] {group.sum + ((group.foreign != null) ? group.foreign.toBase() : 0), group.count}));
+        return sums;
+    }
+
+    /**
+     * The running sum of one key, with its amounts in other currencies kept apart.
+     */
+    private static class Group {
+        long sum;
+        long count;
+        CurrencyTotal foreign;
+
+        void add(Group other) {
+            sum += other.sum;
+            count += other.count;
+            if (other.foreign == null) return;
+            if (foreign == null) foreign = new CurrencyTotal();
+            foreign.add(other.foreign);
+        }
+    }
+
+    private static class SumTask<T> extends RecursiveTask<Map<Long, Group>> {
+        private static final long serialVersionUID = 1L;
+        private final transient List<T> records;
+        private final transient ToLongFunction<T> key;
+        private final transient ToLongFunction<T> value;
+        private final transient ToIntFunction<T> currency; // null when the values are not money
+        private final transient ToIntFunction<T> day;
+        private final int from;
+        private final int to;
+
+        SumTask(List<T> records, ToLongFunction<T> key, ToLongFunction<T> value,
+                ToIntFunction<T> currency, ToIntFunction<T> day, int from, int to) {
+            this.records = records;
+            this.key = key;
+            this.value = value;
+            this.currency = currency;
+            this.day = day;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Long, Group> compute() {
+            if (to - from <= LEAF_SIZE) {
+                int baseCurrencyId = (currency != null) ? ExchangeRates.shared().getBaseCurrencyId() : 0;
+                Map<Long, Group> sums = new HashMap<>();
+                for (int i = from; i < to; i++) {
+                    T record = records.get(i);
+                    Group group = sums.computeIfAbsent(key.applyAsLong(record), k -> new Group());
+                    group.count++;
+                    int currencyId = (currency != null) ? currency.applyAsInt(record) : baseCurrencyId;
+                    if (currencyId == baseCurrencyId) {
+                        group.sum += value.applyAsLong(record);
+                    } else {
+                        if (group.foreign == null) group.foreign = new CurrencyTotal();
+                        group.foreign.add(currencyId, day.applyAsInt(record), value.applyAsLong(record));
+                    }
+                }
+                return sums;
+            }
+            int middle = (from + to) >>> 1;
+            SumTask<T> left = new SumTask<>(records, key, value, currency, day, from, middle);
+            left.fork();
+            Map<Long, Group> right = new SumTask<>(records, key, value, currency, day, middle, to).compute();
+            Map<Long, Group> merged = left.join();
+            right.forEach((k, group) -> merged.computeIfAbsent(k, x -> new Group()).add(group));
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one read or write of a data file.
+ * <p>
+ * Events are only recorded while a recording is running, for example when the
+ * application is started with {@code -XX:StartFlightRecording=filename=budget.jfr};
+ * otherwise creating and committing one costs next to nothing. The recording
+ * shows each save, load, log append and compaction with its file, size and
+ * duration alongside GC and I/O events from the JVM.
+ * </p>
+ */
+@Name("budget.Persistence")
+@Label("Persistence")
+@Category({"Budget", "Persistence"})
+@Description("A data file was saved, loaded, appended to or compacted")
+public class PersistenceEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("File")
+    String file;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Success")
+    boolean success;
+
+    /**
+     * Starts timing an operation.
+     * @param operation What is done to the file, e.g. "save" or "append"
+     * @param file The name of the file in the data directory
+     * @return the started event
+     */
+    public static PersistenceEvent begin(String operation, String file) {
+        PersistenceEvent event = new PersistenceEvent();
+        event.operation = operation;
+        event.file = file;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Finishes timing the operation and records the event if a recording wants it.
+     * @param bytes The size of the file after the operation
+     * @param success Whether the operation succeeded
+     */
+    public void end(long bytes, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.bytes = bytes;
+            this.success = success;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package utils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Append-only record log backed by a snapshot file.
+ * <p>
+ * Every insert writes only the new records to the log (a batch of records is
+ * written as a single entry), so an insert costs the same amount of I/O no
+ * matter how much history already exists. Loading reads
+ * the snapshot and replays the log on top of it. Once the log holds as many
+ * records as the snapshot (and at least the compaction threshold) it is
+ * compacted into a fresh snapshot and started again, which keeps the amortized
+ * cost of an insert constant even during bulk imports.
+ * </p>
+ * <p>
+ * Writes to the files are serialized, so threads sharing a log never interleave
+ * their records. Callers that keep the full list themselves must add to it under
+ * the same lock as the append (by synchronizing on the log), so a compaction
+ * never snapshots a record that is not in the log yet.
+ * </p>
+ * <p>
+ * The log's header holds the number of records in the snapshot it follows. If the
+ * snapshot that loads holds fewer (it is missing or could not be read), the log is
+ * still replayed so its records can be seen, but appends and compactions are
+ * refused from then on: compacting would replace the snapshot with the records
+ * that loaded and lose the rest of the history for good.
+ * </p>
+ *
+ * @param <T> the type of record stored in the log
+ */
+public class RecordLog<T extends Serializable> {
+    private static final int MAGIC = 0x52454C47; // "RELG"
+    private static final int DEFAULT_COMPACT_THRESHOLD = 1000;
+
+    private final String snapshotFile;
+    private final String logFile;
+    private final int compactThreshold;
+    private int pendingRecords;
+    private boolean readOnly;
+
+    /**
+     * Creates a record log with the default compaction threshold.
+     * @param snapshotFile The name of the snapshot file in the data directory
+     * @param logFile The name of the log file in the data directory
+     */
+    public RecordLog(String snapshotFile, String logFile) {
+        this(snapshotFile, logFile, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    /**
+     * Creates a record log.
+     * @param snapshotFile The name of the snapshot file in the data directory
+     * @param logFile The name of the log file in the data directory
+     * @param compactThreshold The number of logged records that triggers compaction
+     */
+    public RecordLog(String snapshotFile, String logFile, int compactThreshold) {
+        this.snapshotFile = snapshotFile;
+        this.logFile = logFile;
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * Loads the snapshot and replays every record appended since it was taken.
+     * A torn record at the end of the log (from a crash mid-append) is dropped.
+     * @return The full list of records, never null
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<T> load() {
+        Object loaded = SerializationHelper.loadObject(snapshotFile);
+        List<T> records = (loaded != null) ? (List<T>) loaded : new ArrayList<>();
+        pendingRecords = 0;
+        readOnly = false;
+
+        File file = SerializationHelper.getDataFile(logFile);
+        if (!file.exists()) {
+            return records;
+        }
+
+        PersistenceEvent event = PersistenceEvent.begin("replay", logFile);
+        long start = System.nanoTime();
+        boolean replayed = replay(file, records);
+        Metrics.recordPersistence("replay", logFile, System.nanoTime() - start, file.length(), replayed);
+        event.end(file.length(), replayed);
+        return records;
+    }
+
+    /**
+     * Adds the records of the log to those of the snapshot, cutting off a torn record.
+     * @return false if the log could not be read, true otherwise
+     */
+    @SuppressWarnings("unchecked")
+    private boolean replay(File file, List<T> records) {
+        boolean replayed = true;
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                System.err.println("Error loading log: " + logFile + " has an unknown format");
+                return false;
+            }
+            int baseCount = in.readInt();
+            if (baseCount > records.size()) {
+                System.err.println("Error loading log: " + snapshotFile + " holds " + records.size()
+                        + " records but " + logFile + " follows " + baseCount + "; new records will not be saved"
+                        + " until the snapshot is restored");
+                readOnly = true;
+            }
+            // Records the snapshot already contains (compaction interrupted before the log was reset)
+            int skip = Math.max(0, records.size() - baseCount);
+            validLength = 8;
+            while (true) {
+                int length = in.readInt();
+                if (length < 0 || validLength + 4 + length > file.length()) {
+                    break; // Torn record
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                Object entry = deserialize(bytes);
+                validLength += 4 + length;
+                List<T> batch = (entry instanceof List) ? (List<T>) entry : Collections.singletonList((T) entry);
+                for (T record : batch) {
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        records.add(record);
+                        pendingRecords++;
+                    }
+                }
+            }
+        } catch (EOFException e) {
+            // End of log, possibly with a torn record that is cut off below
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Error replaying log: " + e.getMessage());
+            replayed = false;
+        }
+
+        if (validLength < file.length()) {
+            System.err.println("Dropped torn record at the end of " + logFile);
+            SerializationHelper.recordTornRecord();
+            truncate(file, validLength);
+        }
+        return replayed;
+    }
+
+    /**
+     * Tells whether appends and compactions are refused because the log follows
+     * more records than the snapshot held when it was loaded.
+     * @return true if nothing will be written
+     */
+    public synchronized boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Appends a single record to the log and compacts it if it grew past the threshold.
+     * @param record The record that was just added
+     * @param all The full list of records, including the new one, used for compaction
+     * @return true if successful, false otherwise
+     */
+    public boolean append(T record, List<T> all) {
+        return appendAll(Collections.singletonList(record), all);
+    }
+
+    /**
+     * Appends a batch of records to the log as one entry and compacts it if
+     * it grew past the threshold. A torn batch is dropped as a whole on replay.
+     * @param records The records that were just added
+     * @param all The full list of records, including the new ones, used for compaction
+     * @return true if successful, false otherwise (always false when {@link #isReadOnly()})
+     */
+    public synchronized boolean appendAll(List<T> records, List<T> all) {
+        if (records.isEmpty()) return true;
+        if (readOnly) return false;
+        // The ids the records refer to must be on disk before the records are
+        if (!StringDictionary.shared().flush()) return false;
+        File file = SerializationHelper.getDataFile(logFile);
+        PersistenceEvent event = PersistenceEvent.begin("append", logFile);
+        long start = System.nanoTime();
+        boolean appended = write(file, records, all.size() - records.size());
+        Metrics.recordPersistence("append", logFile, System.nanoTime() - start, file.length(), appended);
+        event.end(file.length(), appended);
+        if (!appended) return false;
+
+        pendingRecords += records.size();
+        if (pendingRecords >= Math.max(compactThreshold, all.size() - pendingRecords)) {
+            compact(all);
+        }
+        return true;
+    }
+
+    /**
+     * Writes a batch as one log entry, starting the log first if it is empty.
+     */
+    private boolean write(File file, List<T> records, int baseCount) {
+        try {
+            if (!file.exists() || file.length() == 0) {
+                writeHeader(file, baseCount);
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file, true), 1 << 16))) {
+                byte[] bytes = serialize(records.size() == 1 ? records.get(0) : new ArrayList<>(records));
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error appending record: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes all records to a new snapshot and resets the log.
+     * @param all The full list of records
+     * @return true if successful, false otherwise
+     */
+    public synchronized boolean compact(List<T> all) {
+        if (readOnly) return false;
+        if (!StringDictionary.shared().flush()) return false;
+        if (!SerializationHelper.saveObject(new ArrayList<>(all), snapshotFile)) {
+            return false;
+        }
+        try {
+            writeHeader(SerializationHelper.getDataFile(logFile), all.size());
+            pendingRecords = 0;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error resetting log: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Starts a new, empty log whose records follow the given snapshot size.
+     */
+    private void writeHeader(File file, int baseCount) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeInt(baseCount);
+        }
+    }
+
+    private static void truncate(File file, long length) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        } catch (IOException e) {
+            System.err.println("Error truncating log: " + e.getMessage());
+        }
+    }
+
+    private static byte[] serialize(Object obj) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(obj);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package utils;
+
+import entities.RecurrenceRule;
+import entities.RecurringEntry;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.BiFunction;
+
+/**
+ * Read-only list of stored records followed by the occurrences of recurring
+ * entries within a period.
+ * <p>
+ * Occurrences are not generated up front: the view only counts how many each
+ * entry has in the period, and creates an occurrence when its position is read.
+ * Paging, reports and other list consumers therefore treat recurring entries as
+ * real records while only the ones actually read are ever created.
+ * </p>
+ *
+ * @param <T> the type of record listed
+ */
+public class RecurrenceView<T extends Serializable> extends AbstractList<T> implements RandomAccess {
+    private final List<T> stored;
+    private final int storedSize;
+    private final List<RecurringEntry<T>> entries;
+    private final BiFunction<T, LocalDate, T> onDate;
+    private final long[] firstOccurrence; // occurrence number of each entry's first date in the period
+    private final int[] ends;             // position after each entry's last occurrence, counted after the stored records
+
+    /**
+     * Creates a view over a period.
+     * @param stored The stored records, listed first
+     * @param entries The recurring entries whose occurrences follow the stored records
+     * @param from The first day of the period (inclusive), or null to start at each entry's first occurrence
+     * @param to The last day of the period (inclusive)
+     * @param onDate Creates a copy of a template record on a given date
+     */
+    public RecurrenceView(List<T> stored, List<RecurringEntry<T>> entries, LocalDate from, LocalDate to,
+                          BiFunction<T, LocalDate, T> onDate) {
+        this.stored = stored;
+        this.storedSize = stored.size();
+        this.entries = List.copyOf(entries);
+        this.onDate = onDate;
+        firstOccurrence = new long[this.entries.size()];
+        ends = new int[this.entries.size()];
+        int end = 0;
+        for (int i = 0; i < this.entries.size(); i++) {
+            RecurrenceRule rule = this.entries.get(i).getRule();
+            firstOccurrence[i] = (from != null && from.isAfter(rule.getStart())) ? rule.countThrough(from.minusDays(1)) : 0;
+            end = Math.addExact(end, Math.toIntExact(Math.max(0, rule.countThrough(to) - firstOccurrence[i])));
+            ends[i] = end;
+        }
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(index);
+        if (index < storedSize) return stored.get(index);
+
+        int position = index - storedSize;
+        int entry = Arrays.binarySearch(ends, position + 1);
+        entry = (entry >= 0) ? entry : -entry - 1;
+        // Several entries can share an end when some have no occurrences; take the first
+        while (entry > 0 && ends[entry - 1] == ends[entry]) entry--;
+        int start = (entry == 0) ? 0 : ends[entry - 1];
+        RecurringEntry<T> recurring = entries.get(entry);
+        LocalDate date = recurring.getRule().occurrence(firstOccurrence[entry] + position - start);
+        return onDate.apply(recurring.getTemplate(), date);
+    }
+
+    /**
+     * Gets the number of stored records, which are listed before the occurrences.
+     * @return the position of the first occurrence
+     */
+    public int getStoredSize() {
+        return storedSize;
+    }
+
+    @Override
+    public int size() {
+        return storedSize + ((ends.length == 0) ? 0 : ends[ends.length - 1]);
+    }
+}
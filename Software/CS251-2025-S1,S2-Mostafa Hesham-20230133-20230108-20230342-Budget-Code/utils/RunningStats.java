@@ -0,0 +1,111 @@
+package utils;
+
+/**
+ * Mean and standard deviation of a stream of values, over all of it and over the latest few.
+ * <p>
+ * The all-time statistics use Welford's online algorithm, which stays accurate
+ * however many values arrive. The recent statistics cover a fixed window of the
+ * latest values kept in a ring, with running sums that are adjusted as values
+ * enter and leave it. Adding a value takes constant time and the memory used
+ * never grows. The class is not thread-safe; callers lock around it.
+ * </p>
+ */
+public class RunningStats {
+    private long count;
+    private double mean;
+    private double m2; // sum of squared differences from the mean
+
+    private final double[] window;
+    private int next;
+    private int filled;
+    private double windowSum;
+    private double windowSumOfSquares;
+
+    /**
+     * Creates empty statistics.
+     * @param windowSize The number of latest values the recent statistics cover
+     */
+    public RunningStats(int windowSize) {
+        window = new double[windowSize];
+    }
+
+    /**
+     * Adds a value.
+     * @param value The value to add
+     */
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        if (filled == window.length) {
+            double evicted = window[next];
+            windowSum -= evicted;
+            windowSumOfSquares -= evicted * evicted;
+        } else {
+            filled++;
+        }
+        window[next] = value;
+        next = (next + 1) % window.length;
+        windowSum += value;
+        windowSumOfSquares += value * value;
+        if (next == 0) resum();
+    }
+
+    /**
+     * Recomputes the window sums once per trip around the ring, so rounding errors
+     * from adding and removing values cannot build up (still constant time on average).
+     */
+    private void resum() {
+        windowSum = 0;
+        windowSumOfSquares = 0;
+        for (int i = 0; i < filled; i++) {
+            windowSum += window[i];
+            windowSumOfSquares += window[i] * window[i];
+        }
+    }
+
+    /**
+     * Gets the number of values added.
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean of every value added.
+     * @return the mean, or 0 if nothing was added
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Gets the sample standard deviation of every value added.
+     * @return the standard deviation, or 0 if fewer than two values were added
+     */
+    public double getStandardDeviation() {
+        return (count > 1) ? Math.sqrt(m2 / (count - 1)) : 0;
+    }
+
+    /**
+     * Gets the mean of the values in the window.
+     * @return the recent mean, or 0 if nothing was added
+     */
+    public double getRecentMean() {
+        return (filled > 0) ? windowSum / filled : 0;
+    }
+
+    /**
+     * Gets the sample standard deviation of the values in the window.
+     * @return the recent standard deviation, or 0 if fewer than two values are in the window
+     */
+    public double getRecentStandardDeviation() {
+        if (filled < 2) return 0;
+        double variance = (windowSumOfSquares - windowSum * windowSum / filled) / (filled - 1);
+        // The running sums can leave a tiny negative remainder when every value is equal
+        return Math.sqrt(Math.max(0, variance));
+    }
+}
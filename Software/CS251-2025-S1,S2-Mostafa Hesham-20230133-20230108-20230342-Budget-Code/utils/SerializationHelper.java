@@ -1,35 +1,140 @@
 package utils;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Utility class for handling serialization and deserialization of objects.
+ * Every save and load is timed per file in {@link Metrics} and emitted as a
+ * {@link PersistenceEvent} for Flight Recorder.
  */
 public class SerializationHelper {
     private static final String DATA_DIR = "data";
+    private static final String USERS_DIR = "users";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Saves of the same file share a temporary file, so they take turns on one of these stripes
+    private static final Object[] FILE_LOCKS = new Object[32];
+
+    static {
+        for (int i = 0; i < FILE_LOCKS.length; i++) {
+            FILE_LOCKS[i] = new Object();
+        }
+    }
+
+    // Recovery statistics, collected while loading (managers may load in the background)
+    private static final AtomicInteger filesLoaded = new AtomicInteger();
+    private static final AtomicInteger failedLoads = new AtomicInteger();
+    private static final AtomicInteger tempFilesDiscarded = new AtomicInteger();
+    private static final AtomicInteger tornRecordsDropped = new AtomicInteger();
+
+    /**
+     * Resolves a file inside the data directory, creating the directory if needed.
+     * @param filename The name of the file, optionally inside a subdirectory
+     * @return The file handle inside the data directory
+     */
+    public static File getDataFile(String filename) {
+        File file = new File(DATA_DIR, filename);
+        File directory = file.getParentFile();
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        return file;
+    }
+
+    /**
+     * Gets the data partition of a user, as a prefix for file names.
+     * Characters that are not safe in file names (including upper case letters,
+     * so partitions stay distinct on case-insensitive file systems) are escaped.
+     * @param username The name of the user
+     * @return the partition prefix, e.g. "users/alice/"
+     */
+    public static String getUserDirectory(String username) {
+        StringBuilder name = new StringBuilder();
+        for (char c : username.toCharArray()) {
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_') {
+                name.append(c);
+            } else {
+                name.append('~').append(Integer.toHexString(c)).append('~');
+            }
+        }
+        return USERS_DIR + File.separator + name + File.separator;
+    }
+
+    /**
+     * Moves files that predate per-user partitions into a user's partition,
+     * unless the partition already has its own copy.
+     * @param directory The partition prefix from {@link #getUserDirectory(String)}
+     * @param filenames The names of the files in the root of the data directory
+     */
+    public static void adoptLegacyFiles(String directory, String... filenames) {
+        int moved = 0;
+        for (String filename : filenames) {
+            File legacy = new File(DATA_DIR, filename);
+            File target = getDataFile(directory + filename);
+            if (!legacy.exists() || target.exists()) continue;
+            try {
+                Files.move(legacy.toPath(), target.toPath());
+                moved++;
+            } catch (IOException e) {
+                System.err.println("Error moving " + filename + ": " + e.getMessage());
+            }
+        }
+        if (moved > 0) {
+            System.out.println("Moved " + moved + " shared data file(s) into this account");
+        }
+    }
 
     /**
      * Saves an object to a file using Java serialization.
+     * The object is written to a temporary file, synced to disk and then renamed
+     * over the old file, so a crash mid-write never leaves a half-written file behind.
+     * Concurrent saves of the same file are serialized; saves of different files
+     * usually proceed in parallel.
      * @param obj The object to serialize
      * @param filename The name of the file to save to
      * @return true if successful, false otherwise
      */
     public static boolean saveObject(Object obj, String filename) {
+        PersistenceEvent event = PersistenceEvent.begin("save", filename);
+        long start = System.nanoTime();
+        boolean saved;
+        synchronized (lockFor(filename)) {
+            saved = save(obj, filename);
+        }
+        long bytes = getDataFile(filename).length();
+        Metrics.recordPersistence("save", filename, System.nanoTime() - start, bytes, saved);
+        event.end(bytes, saved);
+        return saved;
+    }
+
+    private static boolean save(Object obj, String filename) {
+        File target = getDataFile(filename);
+        File temp = getDataFile(filename + TEMP_SUFFIX);
         try {
-            // Create data directory if it doesn't exist
-            File directory = new File(DATA_DIR);
-            if (!directory.exists()) {
-                directory.mkdirs();
+            // Write and sync the temporary file
+            try (FileOutputStream fileOut = new FileOutputStream(temp);
+                 ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(fileOut))) {
+                out.writeObject(obj);
+                out.flush();
+                fileOut.getFD().sync();
             }
 
-            // Save the object
-            FileOutputStream fileOut = new FileOutputStream(DATA_DIR + File.separator + filename);
-            ObjectOutputStream out = new ObjectOutputStream(fileOut);
-            out.writeObject(obj);
-            out.close();
-            fileOut.close();
+            // Swap it in place of the old file
+            try {
+                Files.move(temp.toPath(), target.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory(target.getParentFile());
             return true;
         } catch (IOException e) {
             System.err.println("Error saving object: " + e.getMessage());
+            temp.delete();
             return false;
         }
     }
@@ -40,7 +145,29 @@ public class SerializationHelper {
      * @return The loaded object, or null if loading failed
      */
     public static Object loadObject(String filename) {
+        PersistenceEvent event = PersistenceEvent.begin("load", filename);
+        long start = System.nanoTime();
+        Object loaded = load(filename);
+        // A missing file is not a failure: it is what every new account starts with
+        File file = new File(DATA_DIR + File.separator + filename);
+        boolean success = loaded != null || !file.exists();
+        Metrics.recordPersistence("load", filename, System.nanoTime() - start, file.length(), success);
+        event.end(file.length(), success);
+        return loaded;
+    }
+
+    private static Object load(String filename) {
         try {
+            // A leftover temporary file is a save that never completed. The file's lock is
+            // held so that the temporary file of a save in progress is left alone.
+            File temp = new File(DATA_DIR + File.separator + filename + TEMP_SUFFIX);
+            synchronized (lockFor(filename)) {
+                if (temp.exists() && temp.delete()) {
+                    System.err.println("Discarded incomplete save: " + temp.getName());
+                    tempFilesDiscarded.incrementAndGet();
+                }
+            }
+
             File file = new File(DATA_DIR + File.separator + filename);
             if (!file.exists()) {
                 return null;
@@ -51,10 +178,44 @@ public class SerializationHelper {
             Object obj = in.readObject();
             in.close();
             fileIn.close();
+            filesLoaded.incrementAndGet();
             return obj;
         } catch (IOException | ClassNotFoundException e) {
             System.err.println("Error loading object: " + e.getMessage());
+            failedLoads.incrementAndGet();
             return null;
         }
     }
+
+    /**
+     * Records that a torn record was cut from the end of a log during recovery.
+     */
+    public static void recordTornRecord() {
+        tornRecordsDropped.incrementAndGet();
+    }
+
+    /**
+     * Summarizes what happened while loading the data files.
+     * @return a one-line recovery report
+     */
+    public static String getRecoveryStats() {
+        return String.format("Recovery: %d file(s) loaded, %d failed, %d incomplete save(s) discarded, %d torn log record(s) dropped",
+                filesLoaded.get(), failedLoads.get(), tempFilesDiscarded.get(), tornRecordsDropped.get());
+    }
+
+    private static Object lockFor(String filename) {
+        return FILE_LOCKS[Math.floorMod(filename.hashCode(), FILE_LOCKS.length)];
+    }
+
+    /**
+     * Flushes a directory entry so a completed rename survives a power loss.
+     * Not every platform allows opening a directory, in which case this is skipped.
+     */
+    private static void syncDirectory(File directory) {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directory sync is unsupported here; the rename itself is still atomic
+        }
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,62 @@
+package utils;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects startup timings so load-time regressions can be tracked.
+ * <p>
+ * Each run is appended as one CSV line to {@code data/startup-times.csv};
+ * the same numbers can also be printed to the console.
+ * </p>
+ */
+public class StartupReport {
+    private static final String REPORT_FILE = "startup-times.csv";
+    private static final long START = System.nanoTime();
+
+    private static final Map<String, Long> timings = new LinkedHashMap<>();
+
+    /**
+     * Records how long a startup step took.
+     * @param step The name of the step (e.g. a manager being loaded)
+     * @param nanos The duration in nanoseconds
+     */
+    public static synchronized void record(String step, long nanos) {
+        timings.put(step, nanos);
+    }
+
+    /**
+     * Records the time elapsed since the application started.
+     * @param milestone The name of the milestone (e.g. "menu ready")
+     */
+    public static void mark(String milestone) {
+        record(milestone, System.nanoTime() - START);
+    }
+
+    /**
+     * Prints the recorded timings.
+     */
+    public static synchronized void print() {
+        System.out.println("\n=== STARTUP REPORT ===");
+        timings.forEach((step, nanos) -> System.out.printf("%-28s %10.2f ms%n", step, nanos / 1e6));
+        System.out.println(SerializationHelper.getRecoveryStats());
+    }
+
+    /**
+     * Appends the recorded timings to the startup history file.
+     */
+    public static synchronized void save() {
+        StringBuilder line = new StringBuilder(LocalDateTime.now().toString());
+        timings.forEach((step, nanos) -> line.append(',').append(step).append('=')
+                .append(String.format("%.2f", nanos / 1e6)));
+        try (PrintWriter out = new PrintWriter(new FileWriter(SerializationHelper.getDataFile(REPORT_FILE), true))) {
+            out.println(line);
+        } catch (IOException e) {
+            System.err.println("Error saving startup report: " + e.getMessage());
+        }
+    }
+}
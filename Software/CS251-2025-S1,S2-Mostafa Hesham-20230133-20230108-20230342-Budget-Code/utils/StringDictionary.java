@@ -0,0 +1,197 @@
+package utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared dictionary that maps repeated strings (categories, payment methods,
+ * income sources) to compact integer ids.
+ * <p>
+ * Records store and persist the id instead of the string, so each distinct
+ * value is kept once in memory and once on disk. Ids are assigned in order and
+ * never reused. A new id is only kept in memory until {@link #flush()} appends
+ * the strings added since the last flush to {@code dictionary.log}, one synced
+ * write for the whole batch. Record logs and checkpoints flush the dictionary
+ * before they write, so a persisted record never refers to an unknown id.
+ * Strings saved by earlier versions in {@code dictionary.ser} are read first
+ * and the log continues from there.
+ * </p>
+ */
+public class StringDictionary {
+    private static final String DICTIONARY_FILE = "dictionary.ser";
+    private static final String DICTIONARY_LOG = "dictionary.log";
+    private static final StringDictionary SHARED = new StringDictionary(DICTIONARY_FILE, DICTIONARY_LOG);
+
+    private final String logFile;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] values;
+    private int size;
+    private final Object flushLock = new Object();
+    private int persisted; // ids below this are on disk; guarded by flushLock
+
+    @SuppressWarnings("unchecked")
+    private StringDictionary(String snapshotFile, String logFile) {
+        this.logFile = logFile;
+        Object loaded = SerializationHelper.loadObject(snapshotFile);
+        List<String> stored = (loaded != null) ? (List<String>) loaded : new ArrayList<>();
+        replay(SerializationHelper.getDataFile(logFile), stored);
+        values = stored.toArray(new String[Math.max(16, stored.size())]);
+        size = stored.size();
+        persisted = size;
+        for (int id = 0; id < size; id++) {
+            ids.put(values[id], id);
+        }
+    }
+
+    /**
+     * Gets the dictionary shared by all records.
+     * @return the shared dictionary
+     */
+    public static StringDictionary shared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets the id of a string, assigning a new one if the string has not been seen before.
+     * @param value The string to encode
+     * @return the id of the string
+     */
+    public int idOf(String value) {
+        Integer id = ids.get(value);
+        return (id != null) ? id : add(value);
+    }
+
+    /**
+     * Gets the id of a string without assigning one, for lookups that must not
+     * persist whatever string they are asked about.
+     * @param value The string to look up
+     * @return the id of the string, or -1 if it has not been seen before
+     */
+    public int find(String value) {
+        Integer id = ids.get(value);
+        return (id != null) ? id : -1;
+    }
+
+    /**
+     * Gets the string for an id.
+     * @param id The id to decode
+     * @return the string with that id
+     */
+    public String valueOf(int id) {
+        return values[id];
+    }
+
+    /**
+     * Gets the number of distinct strings in the dictionary.
+     * @return the number of ids handed out
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Appends the strings added since the last flush to the log and syncs it.
+     * Does nothing when every id is already on disk.
+     * @return true if every id handed out so far is on disk, false if writing failed
+     */
+    public boolean flush() {
+        synchronized (flushLock) {
+            String[] current;
+            int end;
+            synchronized (this) {
+                current = values;
+                end = size;
+            }
+            if (persisted == end) return true;
+            File file = SerializationHelper.getDataFile(logFile);
+            long start = System.nanoTime();
+            long before = file.length();
+            boolean written = write(file, current, persisted, end);
+            Metrics.recordPersistence("append", logFile, System.nanoTime() - start, file.length(), written);
+            if (written) {
+                persisted = end;
+            } else {
+                truncate(file, before);
+            }
+            return written;
+        }
+    }
+
+    private synchronized int add(String value) {
+        Integer existing = ids.get(value);
+        if (existing != null) return existing;
+
+        String[] next = (size == values.length) ? Arrays.copyOf(values, size * 2) : values;
+        next[size] = value;
+        values = next;
+        int id = size++;
+        ids.put(value, id);
+        return id;
+    }
+
+    private static boolean write(File file, String[] values, int from, int to) {
+        try (FileOutputStream fileOut = new FileOutputStream(file, true);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            for (int id = from; id < to; id++) {
+                byte[] bytes = values[id].getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error appending to dictionary: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Adds the strings of the log to those of the snapshot, cutting off a torn entry.
+     */
+    private static void replay(File file, List<String> values) {
+        if (!file.exists()) return;
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length = in.readInt();
+                if (length < 0 || validLength + 4 + length > file.length()) break; // Torn entry
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                values.add(new String(bytes, StandardCharsets.UTF_8));
+                validLength += 4 + length;
+            }
+        } catch (EOFException e) {
+            // End of log, possibly with a torn entry that is cut off below
+        } catch (IOException e) {
+            System.err.println("Error replaying dictionary: " + e.getMessage());
+        }
+        if (validLength < file.length()) {
+            System.err.println("Dropped torn entry at the end of " + file.getName());
+            SerializationHelper.recordTornRecord();
+            truncate(file, validLength);
+        }
+    }
+
+    private static void truncate(File file, long length) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        } catch (IOException e) {
+            System.err.println("Error truncating dictionary: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from the words of text fields to the positions of the records holding them.
+ * <p>
+ * Text is split into lower-case words of letters and digits. The words are kept
+ * in a prefix trie whose nodes hold the sorted positions of the records containing
+ * that word, so a word or prefix query walks at most one node per character and
+ * then only reads the postings of the words it matches, however many records
+ * there are.
+ * The words of each distinct text are cached, so indexing a record whose
+ * category or title was seen before skips splitting and the trie walk.
+ * </p>
+ * <p>
+ * Records must be added in increasing position order, for example under the lock
+ * that appends them to their store. The index is safe to use from several threads.
+ * </p>
+ */
+public class TextIndex {
+    private static final int MAX_CACHED_TEXTS = 4096;
+    // A prefix matching more words than this is checked against a bitmap of their postings
+    private static final int MAX_MERGED_TERMS = 8;
+
+    private final Node root = new Node();
+    private final Map<String, Node[]> termsOfText = new HashMap<>();
+
+    /**
+     * Adds a record's text fields to the index.
+     * @param position The position of the record in its store
+     * @param texts The text fields of the record
+     */
+    public synchronized void add(int position, String... texts) {
+        for (String text : texts) {
+            for (Node term : termsOf(text)) {
+                term.add(position);
+            }
+        }
+    }
+
+    /**
+     * Finds the records containing every word of a query.
+     * The matches of the rarest word are checked against the postings of the
+     * others, so the cost follows the smallest posting list rather than the
+     * number of records.
+     * @param query The words to look for, e.g. "uber eats"
+     * @param prefix Whether each word also matches longer words that start with it
+     * @return the positions of the matching records in increasing order;
+     *         empty if the query has no words
+     */
+    public synchronized int[] search(String query, boolean prefix) {
+        List<String> words = split(query);
+        if (words.isEmpty()) return new int[0];
+        List<List<Node>> matches = new ArrayList<>(words.size());
+        for (String word : words) {
+            Node node = find(word);
+            List<Node> terms = new ArrayList<>();
+            if (node != null && prefix) {
+                node.collect(terms);
+            } else if (node != null && node.size > 0) {
+                terms.add(node);
+            }
+            if (terms.isEmpty()) return new int[0];
+            matches.add(terms);
+        }
+        matches.sort(Comparator.comparingLong(TextIndex::postingCount));
+
+        int[] result = union(matches.get(0));
+        int size = result.length;
+        for (int i = 1; i < matches.size() && size > 0; i++) {
+            size = retain(result, size, matches.get(i));
+        }
+        return (size == result.length) ? result : Arrays.copyOf(result, size);
+    }
+
+    private static long postingCount(List<Node> terms) {
+        long count = 0;
+        for (Node term : terms) {
+            count += term.size;
+        }
+        return count;
+    }
+
+    /**
+     * Merges the postings of several words into one sorted array without duplicates.
+     */
+    private static int[] union(List<Node> terms) {
+        if (terms.size() == 1) return Arrays.copyOf(terms.get(0).postings, terms.get(0).size);
+        BitSet present = postingsOf(terms);
+        int[] merged = new int[present.cardinality()];
+        int size = 0;
+        for (int position = present.nextSetBit(0); position >= 0; position = present.nextSetBit(position + 1)) {
+            merged[size++] = position;
+        }
+        return merged;
+    }
+
+    private static BitSet postingsOf(List<Node> terms) {
+        BitSet present = new BitSet();
+        for (Node term : terms) {
+            for (int i = 0; i < term.size; i++) {
+                present.set(term.postings[i]);
+            }
+        }
+        return present;
+    }
+
+    /**
+     * Keeps the candidates that appear in the postings of any of the words,
+     * moving through each posting list once by galloping search.
+     * @return the number of candidates kept at the front of the array
+     */
+    private static int retain(int[] candidates, int size, List<Node> terms) {
+        if (terms.size() > MAX_MERGED_TERMS) {
+            BitSet present = postingsOf(terms);
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (present.get(candidates[i])) candidates[kept++] = candidates[i];
+            }
+            return kept;
+        }
+        int[] cursors = new int[terms.size()];
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int candidate = candidates[i];
+            boolean found = false;
+            for (int t = 0; t < cursors.length; t++) {
+                Node term = terms.get(t);
+                int index = gallop(term.postings, cursors[t], term.size, candidate);
+                cursors[t] = index;
+                if (index < term.size && term.postings[index] == candidate) {
+                    found = true;
+                    cursors[t] = index + 1;
+                }
+            }
+            if (found) candidates[kept++] = candidate;
+        }
+        return kept;
+    }
+
+    /**
+     * Finds the first index from {@code from} whose posting is not below a key, probing
+     * 1, 2, 4... places ahead before a binary search, so that nearby keys cost only a
+     * few comparisons.
+     */
+    private static int gallop(int[] postings, int from, int to, int key) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < to && postings[high] < key) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        int index = Arrays.binarySearch(postings, low, Math.min(high, to), key);
+        return (index >= 0) ? index : -index - 1;
+    }
+
+    /**
+     * Gets the trie nodes of the words of a text, splitting it on first sight.
+     */
+    private Node[] termsOf(String text) {
+        Node[] terms = termsOfText.get(text);
+        if (terms != null) return terms;
+        List<String> words = split(text);
+        terms = new Node[words.size()];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = insert(words.get(i));
+        }
+        // Distinct categories and sources are few; titles may not be, so the cache is bounded
+        if (termsOfText.size() >= MAX_CACHED_TEXTS) termsOfText.clear();
+        termsOfText.put(text, terms);
+        return terms;
+    }
+
+    private Node insert(String word) {
+        Node node = root;
+        for (int i = 0; i < word.length(); i++) {
+            node = node.child(word.charAt(i), true);
+        }
+        return node;
+    }
+
+    private Node find(String word) {
+        Node node = root;
+        for (int i = 0; i < word.length() && node != null; i++) {
+            node = node.child(word.charAt(i), false);
+        }
+        return node;
+    }
+
+    /**
+     * Splits text into distinct lower-case words of letters and digits.
+     */
+    private static List<String> split(String text) {
+        List<String> words = new ArrayList<>(2);
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = text.substring(start, i).toLowerCase();
+                if (!words.contains(word)) words.add(word);
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * A prefix in the trie, with the positions of the records holding the word it spells.
+     */
+    private static class Node {
+        private char[] keys = new char[0];      // sorted
+        private Node[] children = new Node[0];
+        private int[] postings = new int[0];
+        private int size;
+
+        Node child(char key, boolean create) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) return children[index];
+            if (!create) return null;
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            newKeys[insertAt] = key;
+            newChildren[insertAt] = new Node();
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[insertAt];
+        }
+
+        void add(int position) {
+            // A word repeated within one record (e.g. category and method) is posted once
+            if (size > 0 && postings[size - 1] == position) return;
+            if (size == postings.length) {
+                postings = Arrays.copyOf(postings, Math.max(4, size * 2));
+            }
+            postings[size++] = position;
+        }
+
+        void collect(List<Node> terms) {
+            if (size > 0) terms.add(this);
+            for (Node child : children) {
+                child.collect(terms);
+            }
+        }
+    }
+}
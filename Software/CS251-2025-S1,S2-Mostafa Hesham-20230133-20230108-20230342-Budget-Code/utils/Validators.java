@@ -7,6 +7,10 @@ import java.time.LocalDateTime;
  * Utility class for validating various inputs and conditions.
  */
 public class Validators {
+    /** The earliest date a record can have. */
+    public static final LocalDate MIN_DATE = LocalDate.of(1900, 1, 1);
+    /** The latest date a record can have. */
+    public static final LocalDate MAX_DATE = LocalDate.of(2199, 12, 31);
 
     /**
      * Validates if the given email address is in a valid format.
@@ -47,12 +51,23 @@ public class Validators {
         return end.isAfter(start);
     }
 
+    /**
+     * Validates if a date lies within the years records can be dated in. Per-day
+     * totals cover the days between a category's earliest and latest records, so
+     * this also bounds their size.
+     * @param date The date to validate.
+     * @return true if the date is between {@link #MIN_DATE} and {@link #MAX_DATE} (inclusive), false otherwise.
+     */
+    public static boolean validateDate(LocalDate date) {
+        return !date.isBefore(MIN_DATE) && !date.isAfter(MAX_DATE);
+    }
+
     /**
      * Validates if the transaction amount is positive.
-     * @param amount The transaction amount to validate.
+     * @param amountCents The transaction amount to validate, in cents.
      * @return true if the amount is greater than 0, false otherwise.
      */
-    public static boolean validateTransaction(double amount) {
-        return amount > 0;
+    public static boolean validateTransaction(long amountCents) {
+        return amountCents > 0;
     }
 }
\ No newline at end of file